@@ -0,0 +1,29 @@
+@echo off
+echo Building Campus Course & Records Manager benchmarks...
+echo.
+
+if not exist lib\jmh-core-*.jar (
+    echo JMH not found. Put these jars in lib\ first:
+    echo   jmh-core, jmh-generator-annprocess, jopt-simple, commons-math3
+    exit /b 1
+)
+
+echo Cleaning bench\bin directory...
+if exist bench\bin rmdir /s /q bench\bin
+mkdir bench\bin
+
+echo Compiling sources and benchmarks...
+javac -encoding UTF-8 -cp "lib\*" -d bench\bin src/edu/ccrm/util/*.java src/edu/ccrm/domain/*.java src/edu/ccrm/config/*.java src/edu/ccrm/metrics/*.java src/edu/ccrm/service/*.java src/edu/ccrm/io/*.java src/edu/ccrm/cli/*.java src/edu/ccrm/Main.java bench/src/edu/ccrm/bench/*.java
+
+if %errorlevel% neq 0 (
+    echo Compilation failed!
+    exit /b 1
+)
+
+rem Benchmarks create data\ and backup\ in the working directory, so they run in bench\work
+if not exist bench\work mkdir bench\work
+pushd bench\work
+echo Running benchmarks with allocation profiling...
+rem Extra arguments go to JMH, e.g.: bench.bat QueryBenchmark -p records=1000,10000
+java -cp "..\bin;..\..\lib\*" org.openjdk.jmh.Main -prof gc -rf json -rff results.json %*
+popd
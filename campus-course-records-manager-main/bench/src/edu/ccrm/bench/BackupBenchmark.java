@@ -0,0 +1,100 @@
+package edu.ccrm.bench;
+
+import edu.ccrm.config.AppConfig;
+import edu.ccrm.io.BackupService;
+import edu.ccrm.io.ImportExportService;
+import edu.ccrm.io.SnapshotService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Full folder backup and compressed archive backup of a data directory
+ * holding a snapshot and CSV exports of the dataset. BackupService works
+ * on the configured data and backup directories, which are relative to
+ * the working directory, so this must run from an empty one; bench.bat
+ * uses bench/work.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+public class BackupBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int records;
+
+    private AppConfig config;
+    private BackupService backupService;
+    private Path backup;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        config = AppConfig.getInstance();
+        Path dataDirectory = config.getDataDirectory();
+        if (Files.exists(dataDirectory)) {
+            try (Stream<Path> files = Files.list(dataDirectory)) {
+                if (files.findAny().isPresent()) {
+                    throw new IllegalStateException("Refusing to run in a working directory that already has data: "
+                        + dataDirectory.toAbsolutePath());
+                }
+            }
+        }
+        config.ensureDirectoriesExist();
+
+        BenchmarkData data = BenchmarkData.generate(records);
+        new SnapshotService(data.studentService, data.courseService).saveSnapshot();
+        ImportExportService exporter = new ImportExportService(data.studentService, data.courseService);
+        exporter.exportStudentsToCSV(dataDirectory.resolve("students.csv"));
+        exporter.exportCoursesToCSV(dataDirectory.resolve("courses.csv"));
+    }
+
+    // A fresh service per backup, so its manifest cache does not grow across invocations
+    @Setup(Level.Invocation)
+    public void freshService() {
+        backupService = new BackupService();
+    }
+
+    // Backup names have one-second resolution; deleting each one keeps the next from colliding with it
+    @TearDown(Level.Invocation)
+    public void deleteBackup() throws IOException {
+        BenchmarkFiles.deleteRecursively(backup);
+        backup = null;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkFiles.deleteRecursively(config.getDataDirectory());
+        BenchmarkFiles.deleteRecursively(config.getBackupDirectory());
+    }
+
+    @Benchmark
+    public Path createBackup() throws IOException {
+        backup = backupService.createBackup();
+        return backup;
+    }
+
+    @Benchmark
+    public Path createArchiveBackup() throws IOException {
+        backup = backupService.createArchiveBackup();
+        return backup;
+    }
+}
@@ -0,0 +1,53 @@
+package edu.ccrm.bench;
+
+import edu.ccrm.io.DatasetGenerator;
+import edu.ccrm.service.CourseService;
+import edu.ccrm.service.StudentService;
+
+/**
+ * Seeded dataset shared by the benchmarks, built by {@link DatasetGenerator}:
+ * {@code records} students, one course per fifty students (at least 50),
+ * and a few marked enrollments per student with skewed course popularity.
+ * The same seed and size always produce the same data, so runs on
+ * different commits measure the same work, and a load test fed by the
+ * generate batch command sees the same students as the benchmarks.
+ */
+final class BenchmarkData {
+    static final long SEED = 20240917L;
+    static final int ENROLLMENTS_PER_STUDENT = 4;
+
+    final StudentService studentService;
+    final CourseService courseService;
+    final int courseCount;
+
+    private BenchmarkData(int records, int enrollmentsPerStudent) {
+        this.courseService = new CourseService();
+        this.studentService = new StudentService(courseService);
+        this.courseCount = Math.max(50, records / 50);
+        new DatasetGenerator.Builder()
+            .seed(SEED)
+            .students(records)
+            .courses(courseCount)
+            .enrollmentsPerStudent(enrollmentsPerStudent)
+            .markedFraction(1.0)
+            .build()
+            .loadInto(studentService, courseService);
+    }
+
+    static BenchmarkData generate(int records) {
+        return new BenchmarkData(records, ENROLLMENTS_PER_STUDENT);
+    }
+
+    // Without enrollments, for benchmarks that measure enrolling itself
+    static BenchmarkData unenrolled(int records) {
+        return new BenchmarkData(records, 0);
+    }
+
+    static String studentId(int index) {
+        return DatasetGenerator.studentId(index);
+    }
+
+    static String courseId(int index) {
+        return DatasetGenerator.courseId(index);
+    }
+}
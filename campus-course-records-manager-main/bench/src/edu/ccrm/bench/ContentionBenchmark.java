@@ -0,0 +1,128 @@
+package edu.ccrm.bench;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.CourseCode;
+import edu.ccrm.domain.Student;
+import edu.ccrm.io.DatasetGenerator;
+import edu.ccrm.service.EnrollmentOutcome;
+import edu.ccrm.util.CCRMException;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Multi-threaded throughput of the shared services. The "readWrite"
+ * group runs searches and leaderboard reads alongside threads that
+ * record marks. The "seats" group enrolls and unenrolls random students
+ * in one limited course from every thread; after each iteration the
+ * course is checked to have no more seats taken than it has, and no
+ * student stranded on the waitlist while a seat is free.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+public class ContentionBenchmark {
+    private static final String SEATS_COURSE = "SEATS-101";
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int records;
+
+    @Param({"100"})
+    public int capacity;
+
+    private BenchmarkData data;
+    private Course seatsCourse;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        data = BenchmarkData.generate(records);
+        seatsCourse = new Course.Builder(new CourseCode("SEATS", "101"), "Contended").capacity(capacity).build();
+        data.courseService.addCourse(seatsCourse);
+    }
+
+    @TearDown(Level.Iteration)
+    public void checkSeats() {
+        int taken = seatsCourse.getSeatsTaken();
+        int headcount = data.studentService.getCourseHeadcount(SEATS_COURSE);
+        if (taken > capacity || taken != headcount) {
+            throw new IllegalStateException(String.format("%s oversubscribed: %d seats taken, %d enrolled, capacity %d",
+                SEATS_COURSE, taken, headcount, capacity));
+        }
+        if (seatsCourse.hasWaitlist() && taken < capacity) {
+            throw new IllegalStateException(String.format("%s has %d free seats but %d students waiting",
+                SEATS_COURSE, capacity - taken, seatsCourse.getWaitlist().size()));
+        }
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    public List<Student> search() {
+        List<String> surnames = DatasetGenerator.LAST_NAMES;
+        String surname = surnames.get(ThreadLocalRandom.current().nextInt(surnames.size()));
+        return data.studentService.search(surname);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public List<Student> topStudents() {
+        return data.studentService.getTopStudents(10);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(2)
+    public boolean recordMarks() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Student student = data.studentService.getStudent(BenchmarkData.studentId(random.nextInt(records)));
+        String[] courseIds = student.getEnrollments().keySet().toArray(new String[0]);
+        if (courseIds.length == 0) {
+            return false;
+        }
+        try {
+            data.studentService.recordMarks(student.getId(), courseIds[random.nextInt(courseIds.length)],
+                35 + random.nextInt(66));
+            return true;
+        } catch (CCRMException e) {
+            return false;
+        }
+    }
+
+    @Benchmark
+    @Group("seats")
+    @GroupThreads(4)
+    public EnrollmentOutcome enrollOrLeave() {
+        String studentId = BenchmarkData.studentId(ThreadLocalRandom.current().nextInt(records));
+        try {
+            if (data.studentService.getStudent(studentId).getEnrollments().containsKey(SEATS_COURSE)) {
+                data.studentService.unenrollStudent(studentId, SEATS_COURSE);
+                return null;
+            }
+            return data.studentService.enrollStudent(studentId, SEATS_COURSE);
+        } catch (CCRMException e) {
+            // Raced with another thread for the same student, or over the credit limit
+            return null;
+        }
+    }
+}
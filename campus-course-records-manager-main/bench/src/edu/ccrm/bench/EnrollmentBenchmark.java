@@ -0,0 +1,138 @@
+package edu.ccrm.bench;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.CourseCode;
+import edu.ccrm.service.EnrollmentOutcome;
+import edu.ccrm.service.EnrollmentRequest;
+import edu.ccrm.service.StudentService;
+import edu.ccrm.util.CCRMException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Bulk enrollment through enrollAll against the equivalent enrollStudent
+ * loop, and a first-come-first-served rush in which every student tries
+ * to enroll in one limited course at the same moment. Each invocation
+ * starts from students and courses with no enrollments.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+public class EnrollmentBenchmark {
+    private static final String RUSH_COURSE = "RUSH-101";
+    private static final int RUSH_CAPACITY = 250;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int records;
+
+    private BenchmarkData data;
+    private List<EnrollmentRequest> requests;
+    private Course rushCourse;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        data = BenchmarkData.unenrolled(records);
+        rushCourse = new Course.Builder(new CourseCode("RUSH", "101"), "Opening day").capacity(RUSH_CAPACITY).build();
+        data.courseService.addCourse(rushCourse);
+
+        Random random = new Random(BenchmarkData.SEED);
+        requests = new ArrayList<>(records * BenchmarkData.ENROLLMENTS_PER_STUDENT);
+        for (int i = 0; i < records; i++) {
+            for (int e = 0; e < BenchmarkData.ENROLLMENTS_PER_STUDENT; e++) {
+                requests.add(new EnrollmentRequest(BenchmarkData.studentId(i),
+                    BenchmarkData.courseId(random.nextInt(data.courseCount))));
+            }
+        }
+    }
+
+    // The rush must never hand out more seats than the course has
+    @TearDown(Level.Invocation)
+    public void checkSeats() {
+        int headcount = data.studentService.getCourseHeadcount(RUSH_COURSE);
+        if (rushCourse.getSeatsTaken() > RUSH_CAPACITY || rushCourse.getSeatsTaken() != headcount) {
+            throw new IllegalStateException(String.format("%s oversubscribed: %d seats taken, %d enrolled, capacity %d",
+                RUSH_COURSE, rushCourse.getSeatsTaken(), headcount, RUSH_CAPACITY));
+        }
+    }
+
+    @Benchmark
+    public EnrollmentOutcome[] enrollAll() {
+        return data.studentService.enrollAll(requests);
+    }
+
+    @Benchmark
+    public int enrollLoop() {
+        int enrolled = 0;
+        for (EnrollmentRequest request : requests) {
+            try {
+                data.studentService.enrollStudent(request.getStudentId(), request.getCourseId());
+                enrolled++;
+            } catch (CCRMException e) {
+                // Rejected, as enrollAll would report it
+            }
+        }
+        return enrolled;
+    }
+
+    /**
+     * Every student tries to enroll in the one limited course, released
+     * together from a latch across all available processors. All but
+     * RUSH_CAPACITY of them end up on the waitlist.
+     */
+    @Benchmark
+    public int seatRush() throws Exception {
+        int threads = Runtime.getRuntime().availableProcessors();
+        StudentService studentService = data.studentService;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int first = t;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    int enrolled = 0;
+                    for (int i = first; i < records; i += threads) {
+                        if (studentService.enrollStudent(BenchmarkData.studentId(i), RUSH_COURSE)
+                                == EnrollmentOutcome.ENROLLED) {
+                            enrolled++;
+                        }
+                    }
+                    return enrolled;
+                }));
+            }
+            start.countDown();
+            int enrolled = 0;
+            for (Future<Integer> result : results) {
+                enrolled += result.get();
+            }
+            return enrolled;
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
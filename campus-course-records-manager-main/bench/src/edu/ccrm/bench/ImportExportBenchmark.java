@@ -0,0 +1,128 @@
+package edu.ccrm.bench;
+
+import edu.ccrm.io.ImportExportService;
+import edu.ccrm.io.ImportReport;
+import edu.ccrm.io.MappedCsvReader;
+import edu.ccrm.service.CourseService;
+import edu.ccrm.service.StudentService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CSV import into empty services, sequential and chunked-parallel, and CSV
+ * export of the whole dataset, plain and gzip. Each import starts from
+ * fresh services, so every invocation parses and inserts every row. The
+ * parse-only pair compares the mapped reader with a {@code Files.lines}
+ * baseline that splits on commas; run with {@code -prof gc} for allocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+public class ImportExportBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int records;
+
+    private Path directory;
+    private Path studentsCsv;
+    private Path coursesCsv;
+    private BenchmarkData data;
+    private ImportExportService exporter;
+    private ImportExportService importer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("ccrm-bench-csv");
+        studentsCsv = directory.resolve("students.csv");
+        coursesCsv = directory.resolve("courses.csv");
+        data = BenchmarkData.generate(records);
+        exporter = new ImportExportService(data.studentService, data.courseService);
+        exporter.exportStudentsToCSV(studentsCsv);
+        exporter.exportCoursesToCSV(coursesCsv);
+    }
+
+    @Setup(Level.Invocation)
+    public void freshServices() {
+        CourseService courseService = new CourseService();
+        importer = new ImportExportService(new StudentService(courseService), courseService);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkFiles.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public ImportReport importStudents() throws IOException {
+        return importer.importStudentsFromCSV(studentsCsv);
+    }
+
+    @Benchmark
+    public ImportReport importStudentsInParallel() throws IOException {
+        return importer.importStudentsInParallel(studentsCsv);
+    }
+
+    @Benchmark
+    public ImportReport importCoursesInParallel() throws IOException {
+        return importer.importCoursesInParallel(coursesCsv);
+    }
+
+    @Benchmark
+    public long parseStudentsFilesLines() throws IOException {
+        long checksum = 0;
+        try (Stream<String> lines = Files.lines(studentsCsv)) {
+            for (String line : (Iterable<String>) lines.skip(1)::iterator) {
+                for (String field : line.split(",")) {
+                    checksum += field.length();
+                }
+            }
+        }
+        return checksum;
+    }
+
+    @Benchmark
+    public long parseStudentsMapped() throws IOException {
+        long[] checksum = new long[1];
+        new MappedCsvReader(studentsCsv, true).forEachRow(row -> {
+            for (int i = 0; i < row.getFieldCount(); i++) {
+                checksum[0] += row.getString(i).length();
+            }
+        });
+        return checksum[0];
+    }
+
+    @Benchmark
+    public void exportStudents() throws IOException {
+        exporter.exportStudentsToCSV(directory.resolve("export.csv"));
+    }
+
+    @Benchmark
+    public void exportStudentsGzip() throws IOException {
+        exporter.exportStudentsToCSV(directory.resolve("export.csv.gz"), true);
+    }
+
+    @Benchmark
+    public void exportCourses() throws IOException {
+        exporter.exportCoursesToCSV(directory.resolve("export-courses.csv"));
+    }
+}
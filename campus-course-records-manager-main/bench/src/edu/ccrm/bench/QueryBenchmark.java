@@ -0,0 +1,145 @@
+package edu.ccrm.bench;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.Semester;
+import edu.ccrm.domain.Student;
+import edu.ccrm.service.CourseService;
+import edu.ccrm.service.StudentService;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Read paths of the services: student search, the course lookups by
+ * department, instructor and semester, the GPA leaderboard and the
+ * per-student GPA, and combined queries through the query planner. The
+ * {@code ...Scan} variants repeat the same query as a full scan, as a
+ * baseline for the indexes behind the real methods.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+public class QueryBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int records;
+
+    // Only the search benchmarks take this state, so only they are multiplied by its queries
+    @State(Scope.Benchmark)
+    public static class SearchQuery {
+        // A surname trigram, a full name and a registration number prefix
+        @Param({"sha", "maya okafor", "2022000001"})
+        public String query;
+    }
+
+    private BenchmarkData data;
+    private Student student;
+    private String department;
+    private String instructor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        data = BenchmarkData.generate(records);
+        student = data.studentService.getStudent(BenchmarkData.studentId(records / 2));
+        department = data.courseService.getCourse(BenchmarkData.courseId(3)).getDepartment();
+        instructor = data.courseService.getCourse(BenchmarkData.courseId(7)).getInstructor();
+    }
+
+    @Benchmark
+    public List<Student> searchStudents(SearchQuery search) {
+        return data.studentService.search(search.query);
+    }
+
+    @Benchmark
+    public List<Student> searchStudentsScan(SearchQuery search) {
+        String folded = search.query.toLowerCase(Locale.ROOT);
+        return data.studentService.getStudentsView().stream()
+            .filter(s -> s.getFullName().toLowerCase(Locale.ROOT).contains(folded)
+                || s.getRegNo().toLowerCase(Locale.ROOT).contains(folded)
+                || s.getEmail().toLowerCase(Locale.ROOT).contains(folded))
+            .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Course> coursesByDepartment() {
+        return data.courseService.getCoursesByDepartment(department);
+    }
+
+    @Benchmark
+    public List<Course> coursesByInstructor() {
+        return data.courseService.getCoursesByInstructor(instructor);
+    }
+
+    @Benchmark
+    public List<Course> coursesBySemester() {
+        return data.courseService.getCoursesBySemester(Semester.FALL);
+    }
+
+    @Benchmark
+    public List<Course> coursesByDepartmentScan() {
+        return data.courseService.getCoursesView().stream()
+            .filter(c -> c.getDepartment().equalsIgnoreCase(department))
+            .collect(Collectors.toList());
+    }
+
+    // Active FALL courses in one department with at least 4 credits, through the planner
+    @Benchmark
+    public List<Course> combinedQuery() {
+        return data.courseService.query()
+            .where(CourseService.ACTIVE.eq(true))
+            .where(CourseService.SEMESTER.eq(Semester.FALL))
+            .where(CourseService.DEPARTMENT.eq(department))
+            .where(CourseService.CREDITS.atLeast(4))
+            .list();
+    }
+
+    @Benchmark
+    public List<Course> combinedQueryScan() {
+        return data.courseService.getCoursesView().stream()
+            .filter(c -> c.isActive() && c.getSemester() == Semester.FALL
+                && c.getDepartment().equalsIgnoreCase(department) && c.getCredits() >= 4)
+            .collect(Collectors.toList());
+    }
+
+    // Students of one course matching a name, which intersects the roster with the trigram index
+    @Benchmark
+    public List<Student> rosterQuery() {
+        return data.studentService.query()
+            .where(StudentService.enrolledIn(BenchmarkData.courseId(3)))
+            .matching("sharma")
+            .list();
+    }
+
+    @Benchmark
+    public List<Student> topStudents() {
+        return data.studentService.getTopStudents(10);
+    }
+
+    @Benchmark
+    public double calculateGpa() {
+        return student.calculateGPA();
+    }
+
+    // The full recount that calculateGPA's running totals replace
+    @Benchmark
+    public double recalculateGpa() {
+        return student.recalculateGPA();
+    }
+}
@@ -1,10 +1,17 @@
 package edu.ccrm;
 
+import edu.ccrm.cli.BatchRunner;
 import edu.ccrm.cli.Menu;
 import edu.ccrm.config.AppConfig;
 
 public class Main {
     public static void main(String[] args) {
+        // Any arguments select headless batch mode; service progress lines (snapshots, backups, imports) are mixed in with the step results
+        if (args.length > 0) {
+            AppConfig.getInstance().ensureDirectoriesExist();
+            System.exit(new BatchRunner(System.out).run(args));
+        }
+        
         // Enable assertions
         boolean assertionsEnabled = false;
         assert assertionsEnabled = true;
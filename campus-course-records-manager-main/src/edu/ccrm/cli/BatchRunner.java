@@ -0,0 +1,371 @@
+package edu.ccrm.cli;
+
+import edu.ccrm.config.AppConfig;
+import edu.ccrm.io.BackupCatalog;
+import edu.ccrm.io.DatasetGenerator;
+import edu.ccrm.io.ImportReport;
+import edu.ccrm.io.MappedCsvReader;
+import edu.ccrm.io.MutationJournal;
+import edu.ccrm.service.EnrollmentOutcome;
+import edu.ccrm.service.EnrollmentRequest;
+import edu.ccrm.service.StudentService;
+import edu.ccrm.util.CCRMException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Headless command runner for scripted jobs. Commands come from a script
+ * (one per line, '#' starts a comment, "-" reads stdin) or from -c
+ * arguments, and run against the same snapshot- and journal-backed state
+ * as the interactive menu. Every step prints one result line with its
+ * timing as soon as it finishes.
+ *
+ * <pre>
+ *   java -cp bin edu.ccrm.Main --batch nightly.txt [--keep-going] [--durability PERIODIC]
+ *   java -cp bin edu.ccrm.Main -c "import-students in.csv" -c "backup archive"
+ * </pre>
+ */
+public class BatchRunner {
+    public static final int EXIT_OK = 0;
+    public static final int EXIT_STEP_FAILED = 1;
+    public static final int EXIT_USAGE = 2;
+    public static final int EXIT_ROWS_REJECTED = 3;
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+        "Usage: edu.ccrm.Main (--batch <script|-> | -c <command>...) [--keep-going] [--durability NONE|PERIODIC|SYNC]",
+        "Commands:",
+        "  import-students <csv>            import-courses <csv>",
+        "  enroll <studentId> <courseId>",
+        "  unenroll <studentId> <courseId>",
+        "  marks <studentId> <courseId> <marks>",
+        "  enroll-batch <csv>               rows: studentId,courseId after a header",
+        "  marks-batch <csv>                rows: studentId,courseId,marks after a header",
+        "  export-students <csv> [--gzip]   export-courses <csv> [--gzip]",
+        "  backup [full|incremental|archive]",
+        "  retention                        restore <backup name>",
+        "  snapshot",
+        "  generate <dir> [students] [courses] [enrollmentsPerStudent] [seed]",
+        "                                   write a synthetic dataset as CSV");
+
+    // Thrown for problems with the script itself rather than with the data
+    private static final class UsageException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        UsageException(String message) {
+            super(message);
+        }
+    }
+
+    private final PrintStream out;
+    private ServiceContext context;
+    private StudentService studentService;
+    private boolean rowsRejected;
+
+    public BatchRunner(PrintStream out) {
+        this.out = out;
+    }
+
+    // Parses the arguments, runs every command and returns the process exit code
+    public int run(String[] args) {
+        String script = null;
+        List<String> commands = new ArrayList<>();
+        boolean keepGoing = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--batch":
+                    if (++i == args.length) return usage("--batch needs a script path");
+                    script = args[i];
+                    break;
+                case "-c":
+                    if (++i == args.length) return usage("-c needs a command");
+                    commands.add(args[i]);
+                    break;
+                case "--keep-going":
+                    keepGoing = true;
+                    break;
+                case "--durability":
+                    if (++i == args.length) return usage("--durability needs a value");
+                    String durability = args[i].toUpperCase(Locale.ROOT);
+                    if (Arrays.stream(MutationJournal.Durability.values()).noneMatch(d -> d.name().equals(durability))) {
+                        return usage("Unknown durability: " + args[i]);
+                    }
+                    AppConfig.getInstance().setProperty("journal.durability", durability);
+                    break;
+                default:
+                    return usage("Unknown argument: " + args[i]);
+            }
+        }
+        if ((script == null) == commands.isEmpty()) {
+            return usage("Give either --batch or -c commands");
+        }
+
+        long start = System.nanoTime();
+        context = new ServiceContext();
+        studentService = context.getStudentService();
+        try {
+            context.loadSnapshot();
+            context.openJournal();
+        } catch (Exception e) {
+            out.println("[fail] startup: " + e.getMessage());
+            return EXIT_STEP_FAILED;
+        }
+
+        int steps = 0;
+        int failed = 0;
+        int exitCode = EXIT_OK;
+        try (BufferedReader reader = script == null ? null : openScript(script)) {
+            long lineNumber = 0;
+            int commandIndex = 0;
+            while (true) {
+                String line;
+                if (reader != null) {
+                    line = reader.readLine();
+                    lineNumber++;
+                } else {
+                    line = commandIndex < commands.size() ? commands.get(commandIndex++) : null;
+                    lineNumber = commandIndex;
+                }
+                if (line == null) {
+                    break;
+                }
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                steps++;
+                long stepStart = System.nanoTime();
+                try {
+                    String detail = execute(tokenize(line));
+                    out.printf("[ok] %d %s (%.1f ms)%s%n", lineNumber, line, millisSince(stepStart),
+                        detail.isEmpty() ? "" : " " + detail);
+                } catch (UsageException e) {
+                    out.printf("[fail] %d %s: %s%n", lineNumber, line, e.getMessage());
+                    failed++;
+                    exitCode = EXIT_USAGE;
+                    break;
+                } catch (Exception e) {
+                    out.printf("[fail] %d %s: %s (%.1f ms)%n", lineNumber, line, e.getMessage(), millisSince(stepStart));
+                    failed++;
+                    exitCode = EXIT_STEP_FAILED;
+                    if (!keepGoing) {
+                        break;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            out.println("[fail] script: " + e.getMessage());
+            exitCode = EXIT_USAGE;
+        } finally {
+            try {
+                context.saveSnapshot();
+                context.closeJournal();
+            } catch (Exception e) {
+                out.println("[fail] shutdown: " + e.getMessage());
+                exitCode = EXIT_STEP_FAILED;
+            }
+        }
+
+        if (exitCode == EXIT_OK && rowsRejected) {
+            exitCode = EXIT_ROWS_REJECTED;
+        }
+        out.printf("Batch finished: %d steps, %d failed, exit code %d in %.1f ms%n",
+            steps, failed, exitCode, millisSince(start));
+        return exitCode;
+    }
+
+    private String execute(List<String> tokens) throws Exception {
+        String command = tokens.get(0);
+        switch (command) {
+            case "import-students":
+                return importReport(context.getImportExportService().importStudentsInParallel(Paths.get(arg(tokens, 1))));
+            case "import-courses":
+                return importReport(context.getImportExportService().importCoursesInParallel(Paths.get(arg(tokens, 1))));
+            case "enroll": {
+                String studentId = arg(tokens, 1);
+                String courseId = arg(tokens, 2);
+                if (studentService.enrollStudent(studentId, courseId) == EnrollmentOutcome.WAITLISTED) {
+                    return "waitlisted at position "
+                        + context.getCourseService().getCourse(courseId).getWaitlistPosition(studentId);
+                }
+                return "";
+            }
+            case "unenroll":
+                studentService.unenrollStudent(arg(tokens, 1), arg(tokens, 2));
+                return "";
+            case "marks":
+                studentService.recordMarks(arg(tokens, 1), arg(tokens, 2), parseDouble(arg(tokens, 3)));
+                return "";
+            case "enroll-batch":
+                return enrollBatch(Paths.get(arg(tokens, 1)));
+            case "marks-batch":
+                return importReport(context.getImportExportService().importGradebook(Paths.get(arg(tokens, 1))));
+            case "export-students":
+                context.getImportExportService().exportStudentsToCSV(Paths.get(arg(tokens, 1)), tokens.contains("--gzip"));
+                return "";
+            case "export-courses":
+                context.getImportExportService().exportCoursesToCSV(Paths.get(arg(tokens, 1)), tokens.contains("--gzip"));
+                return "";
+            case "backup": {
+                String mode = tokens.size() > 1 ? tokens.get(1) : "full";
+                Path backup;
+                switch (mode) {
+                    case "full": backup = context.getBackupService().createBackup(); break;
+                    case "incremental": backup = context.getBackupService().createIncrementalBackup(); break;
+                    case "archive": backup = context.getBackupService().createArchiveBackup(); break;
+                    default: throw new UsageException("Unknown backup mode: " + mode);
+                }
+                return backup.toString();
+            }
+            case "retention":
+                return context.getBackupCatalog().applyRetention().size() + " backups deleted";
+            case "restore": {
+                BackupCatalog.BackupInfo backup = context.getBackupCatalog().find(arg(tokens, 1));
+                if (backup == null) {
+                    throw new CCRMException("No backup named " + tokens.get(1));
+                }
+                context.restore(backup);
+                return "";
+            }
+            case "snapshot":
+                context.saveSnapshot();
+                return "";
+            case "generate": {
+                DatasetGenerator.Builder builder = new DatasetGenerator.Builder();
+                if (tokens.size() > 2) builder.students(parseInt(tokens.get(2)));
+                if (tokens.size() > 3) builder.courses(parseInt(tokens.get(3)));
+                if (tokens.size() > 4) builder.enrollmentsPerStudent(parseInt(tokens.get(4)));
+                if (tokens.size() > 5) builder.seed(parseInt(tokens.get(5)));
+                builder.build().writeCsv(Paths.get(arg(tokens, 1)));
+                return "";
+            }
+            default:
+                throw new UsageException("Unknown command: " + command);
+        }
+    }
+
+    // Parses every row first, then hands the whole batch to the bulk enrollment API
+    private String enrollBatch(Path filePath) throws IOException {
+        long waitlisted = 0;
+        long[] counts = new long[2];
+        List<EnrollmentRequest> requests = new ArrayList<>();
+        List<Long> lineNumbers = new ArrayList<>();
+        new MappedCsvReader(filePath, true).forEachRow(row -> {
+            try {
+                requests.add(new EnrollmentRequest(row.getString(0), row.getString(1)));
+                lineNumbers.add(row.getLineNumber());
+            } catch (Exception e) {
+                reject(row.getLineNumber(), e, counts);
+            }
+        });
+        
+        EnrollmentOutcome[] outcomes = studentService.enrollAll(requests);
+        for (int i = 0; i < outcomes.length; i++) {
+            if (outcomes[i] == EnrollmentOutcome.ENROLLED) {
+                counts[0]++;
+            } else if (outcomes[i] == EnrollmentOutcome.WAITLISTED) {
+                // Accepted, just without a seat yet, so not a rejected row
+                waitlisted++;
+            } else {
+                out.println("  line " + lineNumbers.get(i) + ": " + outcomes[i] + " " + requests.get(i));
+                counts[1]++;
+                rowsRejected = true;
+            }
+        }
+        return counts[0] + " applied, " + waitlisted + " waitlisted, " + counts[1] + " rejected";
+    }
+
+    // Rejected rows are streamed as they happen rather than collected
+    private void reject(long lineNumber, Exception e, long[] counts) {
+        out.println("  line " + lineNumber + ": " + e.getMessage());
+        counts[1]++;
+        rowsRejected = true;
+    }
+
+    private String importReport(ImportReport report) {
+        report.getRejectedLines().forEach((line, reason) -> out.println("  line " + line + ": " + reason));
+        if (report.getRejectedRows() > 0) {
+            rowsRejected = true;
+        }
+        return report.getImportedRows() + " imported, " + report.getRejectedRows() + " rejected";
+    }
+
+    private static String arg(List<String> tokens, int index) throws UsageException {
+        if (index >= tokens.size()) {
+            throw new UsageException(tokens.get(0) + " needs at least " + index + " argument(s)");
+        }
+        return tokens.get(index);
+    }
+
+    private static int parseInt(String value) throws UsageException {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new UsageException("Not a number: " + value);
+        }
+    }
+
+    private static double parseDouble(String value) throws UsageException {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new UsageException("Not a number: " + value);
+        }
+    }
+
+    // Splits on whitespace; double quotes group words, as in "Jane Doe"
+    static List<String> tokenize(String line) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        boolean inToken = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+                inToken = true;
+            } else if (Character.isWhitespace(c) && !quoted) {
+                if (inToken) {
+                    tokens.add(current.toString());
+                    current.setLength(0);
+                    inToken = false;
+                }
+            } else {
+                current.append(c);
+                inToken = true;
+            }
+        }
+        if (inToken) {
+            tokens.add(current.toString());
+        }
+        return tokens;
+    }
+
+    private static BufferedReader openScript(String script) throws IOException {
+        if (script.equals("-")) {
+            return new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        }
+        return Files.newBufferedReader(Paths.get(script), StandardCharsets.UTF_8);
+    }
+
+    private static double millisSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1e6;
+    }
+
+    private int usage(String problem) {
+        out.println(problem);
+        out.println(USAGE);
+        return EXIT_USAGE;
+    }
+}
@@ -3,15 +3,24 @@ package edu.ccrm.cli;
 import edu.ccrm.domain.*;
 import edu.ccrm.service.StudentService;
 import edu.ccrm.service.CourseService;
+import edu.ccrm.service.Query;
+import edu.ccrm.service.EnrollmentOutcome;
 import edu.ccrm.io.ImportExportService;
+import edu.ccrm.io.ImportReport;
+import edu.ccrm.io.BackupCatalog;
 import edu.ccrm.io.BackupService;
 import edu.ccrm.util.CCRMException;
 import edu.ccrm.config.AppConfig;
+import edu.ccrm.metrics.LatencyHistogram;
+import edu.ccrm.metrics.Metrics;
+import edu.ccrm.metrics.OperationMetrics;
 
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 
 public class Menu {
@@ -20,14 +29,18 @@ public class Menu {
     private final CourseService courseService;
     private final ImportExportService importExportService;
     private final BackupService backupService;
+    private final BackupCatalog backupCatalog;
+    private final ServiceContext context;
     private final AppConfig config;
     
     public Menu() {
         this.scanner = new Scanner(System.in);
-        this.studentService = new StudentService();
-        this.courseService = new CourseService();
-        this.importExportService = new ImportExportService(studentService, courseService);
-        this.backupService = new BackupService();
+        this.context = new ServiceContext();
+        this.studentService = context.getStudentService();
+        this.courseService = context.getCourseService();
+        this.importExportService = context.getImportExportService();
+        this.backupService = context.getBackupService();
+        this.backupCatalog = context.getBackupCatalog();
         this.config = AppConfig.getInstance();
     }
     
@@ -42,12 +55,18 @@ public class Menu {
         System.out.println("5. Backup & Utilities");
         System.out.println("6. Reports & Analytics");
         System.out.println("7. Java Platform Information");
+        System.out.println("8. Metrics");
         System.out.println("0. Exit");
         System.out.print("Choose an option: ");
     }
     
     public void run() {
         System.out.println("Welcome to Campus Course & Records Manager!");
+        // Like batch mode, stop rather than run on a partial state whose exit checkpoint would replace the good one
+        if (!loadSnapshot() || !openJournal()) {
+            System.out.println("Startup aborted; the snapshot and journal were left untouched.");
+            return;
+        }
         
         main_loop: while (true) {
             displayMainMenu();
@@ -75,7 +94,12 @@ public class Menu {
                 case "7":
                     displayJavaPlatformInfo();
                     break;
+                case "8":
+                    displayMetrics();
+                    break;
                 case "0":
+                    saveSnapshot();
+                    closeJournal();
                     System.out.println("Thank you for using CCRM! Goodbye!");
                     break main_loop;
                 default:
@@ -214,7 +238,8 @@ public class Menu {
             System.out.println("5. Courses by Department");
             System.out.println("6. Courses by Instructor");
             System.out.println("7. Courses by Semester");
-            System.out.println("8. Back to Main Menu");
+            System.out.println("8. Filter Courses");
+            System.out.println("9. Back to Main Menu");
             System.out.print("Choose an option: ");
             
             String choice = scanner.nextLine();
@@ -227,7 +252,8 @@ public class Menu {
                 case "5": coursesByDepartment(); break;
                 case "6": coursesByInstructor(); break;
                 case "7": coursesBySemester(); break;
-                case "8": return;
+                case "8": filterCourses(); break;
+                case "9": return;
                 default: System.out.println("Invalid option.");
             }
         }
@@ -247,6 +273,8 @@ public class Menu {
             String instructor = scanner.nextLine();
             System.out.print("Enter Semester (SPRING/SUMMER/FALL): ");
             String semesterInput = scanner.nextLine().toUpperCase();
+            System.out.print("Enter Capacity (blank or 0 for unlimited): ");
+            String capacityInput = scanner.nextLine().trim();
             
             Semester semester = Semester.valueOf(semesterInput);
             
@@ -256,6 +284,7 @@ public class Menu {
                 .instructor(instructor)
                 .semester(semester)
                 .department(department)
+                .capacity(capacityInput.isEmpty() ? Course.UNLIMITED : Integer.parseInt(capacityInput))
                 .build();
                 
             courseService.addCourse(course);
@@ -336,6 +365,49 @@ public class Menu {
         }
     }
     
+    // Combines optional filters into one query; blank answers are skipped
+    private void filterCourses() {
+        Query<Course> query = courseService.query();
+        try {
+            System.out.print("Department (blank for any): ");
+            String department = scanner.nextLine().trim();
+            if (!department.isEmpty()) {
+                query.where(CourseService.DEPARTMENT.eq(department));
+            }
+            System.out.print("Semester SPRING/SUMMER/FALL (blank for any): ");
+            String semester = scanner.nextLine().trim();
+            if (!semester.isEmpty()) {
+                query.where(CourseService.SEMESTER.eq(Semester.valueOf(semester.toUpperCase())));
+            }
+            System.out.print("Instructor (blank for any): ");
+            String instructor = scanner.nextLine().trim();
+            if (!instructor.isEmpty()) {
+                query.where(CourseService.INSTRUCTOR.eq(instructor));
+            }
+            System.out.print("Minimum credits (blank for any): ");
+            String credits = scanner.nextLine().trim();
+            if (!credits.isEmpty()) {
+                query.where(CourseService.CREDITS.atLeast(Integer.parseInt(credits)));
+            }
+            System.out.print("Active courses only? (y/n): ");
+            if (scanner.nextLine().trim().equalsIgnoreCase("y")) {
+                query.where(CourseService.ACTIVE.eq(true));
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println("Invalid filter: " + e.getMessage());
+            return;
+        }
+        
+        List<Course> results = query.orderBy(CourseService.CODE).list();
+        System.out.println("Plan: " + query.explain());
+        if (results.isEmpty()) {
+            System.out.println("No courses match.");
+        } else {
+            System.out.println("Matching courses (" + results.size() + "):");
+            results.forEach(System.out::println);
+        }
+    }
+    
     private void coursesBySemester() {
         System.out.print("Enter Semester (SPRING/SUMMER/FALL): ");
         String semesterInput = scanner.nextLine().toUpperCase();
@@ -361,7 +433,8 @@ public class Menu {
             System.out.println("2. Unenroll Student from Course");
             System.out.println("3. Record Marks/Grades");
             System.out.println("4. View Student Enrollments");
-            System.out.println("5. Back to Main Menu");
+            System.out.println("5. View Course Roster");
+            System.out.println("6. Back to Main Menu");
             System.out.print("Choose an option: ");
             
             String choice = scanner.nextLine();
@@ -371,7 +444,8 @@ public class Menu {
                 case "2": unenrollStudent(); break;
                 case "3": recordMarks(); break;
                 case "4": viewStudentEnrollments(); break;
-                case "5": return;
+                case "5": viewCourseRoster(); break;
+                case "6": return;
                 default: System.out.println("Invalid option.");
             }
         }
@@ -383,11 +457,13 @@ public class Menu {
             String studentId = scanner.nextLine();
             System.out.print("Enter Course Code: ");
             String courseCode = scanner.nextLine();
-            System.out.print("Enter Course Credits: ");
-            int credits = Integer.parseInt(scanner.nextLine());
             
-            studentService.enrollStudent(studentId, courseCode, credits);
-            System.out.println("Student enrolled successfully!");
+            if (studentService.enrollStudent(studentId, courseCode) == EnrollmentOutcome.WAITLISTED) {
+                System.out.println("Course is full. Student waitlisted at position "
+                    + courseService.getCourse(courseCode).getWaitlistPosition(studentId) + ".");
+            } else {
+                System.out.println("Student enrolled successfully!");
+            }
             
         } catch (CCRMException e) {
             System.out.println("Enrollment failed: " + e.getMessage());
@@ -402,16 +478,10 @@ public class Menu {
         System.out.print("Enter Course Code: ");
         String courseCode = scanner.nextLine();
         
-        Student student = studentService.getStudent(studentId);
-        if (student == null) {
-            System.out.println("Student not found.");
-            return;
-        }
-        
         try {
-            student.unenrollFromCourse(courseCode);
+            studentService.unenrollStudent(studentId, courseCode);
             System.out.println("Student unenrolled successfully!");
-        } catch (Exception e) {
+        } catch (CCRMException e) {
             System.out.println("Error: " + e.getMessage());
         }
     }
@@ -455,6 +525,21 @@ public class Menu {
         }
     }
     
+    private void viewCourseRoster() {
+        System.out.print("Enter Course Code: ");
+        String courseCode = scanner.nextLine();
+        
+        Map<String, Double> marks = studentService.getCourseMarks(courseCode);
+        if (marks.isEmpty()) {
+            System.out.println("No students enrolled in: " + courseCode);
+            return;
+        }
+        
+        System.out.println("\nRoster for " + courseCode + " (" + studentService.getCourseHeadcount(courseCode) + " students):");
+        marks.forEach((studentId, mark) -> 
+            System.out.println("• " + studentId + " - Marks: " + (mark != null ? mark : "N/A")));
+    }
+    
     private void importExportMenu() {
         while (true) {
             System.out.println("\n--- Import/Export Data ---");
@@ -462,7 +547,8 @@ public class Menu {
             System.out.println("2. Import Courses from CSV");
             System.out.println("3. Export Students to CSV");
             System.out.println("4. Export Courses to CSV");
-            System.out.println("5. Back to Main Menu");
+            System.out.println("5. Import Gradebook (marks) from CSV");
+            System.out.println("6. Back to Main Menu");
             System.out.print("Choose an option: ");
             
             String choice = scanner.nextLine();
@@ -472,7 +558,8 @@ public class Menu {
                 case "2": importCourses(); break;
                 case "3": exportStudents(); break;
                 case "4": exportCourses(); break;
-                case "5": return;
+                case "5": importGradebook(); break;
+                case "6": return;
                 default: System.out.println("Invalid option.");
             }
         }
@@ -483,7 +570,7 @@ public class Menu {
             System.out.print("Enter CSV file path (or press enter for default): ");
             String path = scanner.nextLine();
             Path filePath = Paths.get(path.isEmpty() ? "test-data/students.csv" : path);
-            importExportService.importStudentsFromCSV(filePath);
+            printImportReport(importExportService.importStudentsInParallel(filePath));
         } catch (Exception e) {
             System.out.println("Error importing students: " + e.getMessage());
         }
@@ -503,12 +590,32 @@ public class Menu {
             System.out.print("Enter CSV file path (or press enter for default): ");
             String path = scanner.nextLine();
             Path filePath = Paths.get(path.isEmpty() ? "test-data/courses.csv" : path);
-            importExportService.importCoursesFromCSV(filePath);
+            printImportReport(importExportService.importCoursesInParallel(filePath));
         } catch (Exception e) {
             System.out.println("Error importing courses: " + e.getMessage());
         }
     }
     
+    private void importGradebook() {
+        try {
+            System.out.print("Enter gradebook CSV path (StudentID,CourseCode,Marks): ");
+            Path filePath = Paths.get(scanner.nextLine().trim());
+            printImportReport(importExportService.importGradebook(filePath));
+        } catch (Exception e) {
+            System.out.println("Error importing gradebook: " + e.getMessage());
+        }
+    }
+    
+    private void printImportReport(ImportReport report) {
+        System.out.println(report);
+        report.getRejectedLines().entrySet().stream()
+            .limit(10)
+            .forEach(entry -> System.out.println("• Line " + entry.getKey() + ": " + entry.getValue()));
+        if (report.getRejectedRows() > 10) {
+            System.out.println("... and " + (report.getRejectedRows() - 10) + " more rejected lines");
+        }
+    }
+    
     private void exportCourses() {
         try {
             Path filePath = config.getDataDirectory().resolve("courses_export.csv");
@@ -524,7 +631,13 @@ public class Menu {
             System.out.println("1. Create Backup");
             System.out.println("2. Calculate Backup Size (Recursive)");
             System.out.println("3. List Backup Files");
-            System.out.println("4. Back to Main Menu");
+            System.out.println("4. Save Snapshot");
+            System.out.println("5. Create Incremental Backup");
+            System.out.println("6. Create Compressed Archive Backup");
+            System.out.println("7. List Backups");
+            System.out.println("8. Apply Retention Policy");
+            System.out.println("9. Restore From Backup");
+            System.out.println("10. Back to Main Menu");
             System.out.print("Choose an option: ");
             
             String choice = scanner.nextLine();
@@ -533,7 +646,13 @@ public class Menu {
                 case "1": createBackup(); break;
                 case "2": calculateBackupSize(); break;
                 case "3": listBackupFiles(); break;
-                case "4": return;
+                case "4": saveSnapshot(); break;
+                case "5": createIncrementalBackup(); break;
+                case "6": createArchiveBackup(); break;
+                case "7": listBackups(); break;
+                case "8": applyRetention(); break;
+                case "9": restoreBackup(); break;
+                case "10": return;
                 default: System.out.println("Invalid option.");
             }
         }
@@ -549,6 +668,22 @@ public class Menu {
         }
     }
     
+    private void createIncrementalBackup() {
+        try {
+            backupService.createIncrementalBackup();
+        } catch (Exception e) {
+            System.out.println("Error creating incremental backup: " + e.getMessage());
+        }
+    }
+    
+    private void createArchiveBackup() {
+        try {
+            backupService.createArchiveBackup();
+        } catch (Exception e) {
+            System.out.println("Error creating archive backup: " + e.getMessage());
+        }
+    }
+    
     private void calculateBackupSize() {
         try {
             long size = backupService.calculateBackupSizeRecursive(config.getBackupDirectory());
@@ -567,6 +702,99 @@ public class Menu {
         backupService.listBackupFilesByDepth(config.getBackupDirectory(), maxDepth);
     }
     
+    private void listBackups() {
+        try {
+            int index = 1;
+            for (BackupCatalog.BackupInfo backup : backupCatalog.scan().descendingSet()) {
+                System.out.println(index++ + ". " + backup);
+            }
+            if (index == 1) {
+                System.out.println("No backups found.");
+            }
+        } catch (Exception e) {
+            System.out.println("Error listing backups: " + e.getMessage());
+        }
+    }
+    
+    private void applyRetention() {
+        try {
+            for (BackupCatalog.BackupInfo backup : backupCatalog.applyRetention()) {
+                System.out.println("Deleted " + backup);
+            }
+        } catch (Exception e) {
+            System.out.println("Error applying retention policy: " + e.getMessage());
+        }
+    }
+    
+    private void restoreBackup() {
+        try {
+            List<BackupCatalog.BackupInfo> backups = new ArrayList<>(backupCatalog.scan().descendingSet());
+            if (backups.isEmpty()) {
+                System.out.println("No backups found.");
+                return;
+            }
+            for (int i = 0; i < backups.size(); i++) {
+                System.out.println((i + 1) + ". " + backups.get(i));
+            }
+            System.out.print("Backup to restore (number): ");
+            int choice = Integer.parseInt(scanner.nextLine().trim());
+            if (choice < 1 || choice > backups.size()) {
+                System.out.println("Invalid backup number.");
+                return;
+            }
+            System.out.print("This replaces all current records. Continue? (y/n): ");
+            if (!scanner.nextLine().trim().equalsIgnoreCase("y")) {
+                return;
+            }
+            
+            context.restore(backups.get(choice - 1));
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid backup number.");
+        } catch (Exception e) {
+            System.out.println("Error restoring backup: " + e.getMessage());
+        }
+    }
+    
+    // False when the snapshot exists but could not be loaded
+    private boolean loadSnapshot() {
+        try {
+            if (!context.loadSnapshot()) {
+                System.out.println("No snapshot found, starting with empty records.");
+            }
+            return true;
+        } catch (Exception e) {
+            System.out.println("Error loading snapshot: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    // False when the journal could not be opened or replayed
+    private boolean openJournal() {
+        try {
+            context.openJournal();
+            return true;
+        } catch (Exception e) {
+            System.out.println("Error opening journal: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    private void closeJournal() {
+        try {
+            context.closeJournal();
+        } catch (Exception e) {
+            System.out.println("Error closing journal: " + e.getMessage());
+        }
+    }
+    
+    private void saveSnapshot() {
+        try {
+            context.saveSnapshot();
+        } catch (Exception e) {
+            System.out.println("Error saving snapshot: " + e.getMessage());
+        }
+    }
+    
     private void reportsMenu() {
         System.out.println("\n--- Reports & Analytics ---");
         
@@ -602,4 +830,31 @@ public class Menu {
         System.out.println("Java ME (Micro Edition): For mobile and embedded devices");
         System.out.println("\nThis application uses: Java SE");
     }
+    
+    // Latency per operation since startup or the last reset, in milliseconds
+    private void displayMetrics() {
+        System.out.println("\n=== Metrics ===");
+        System.out.printf("%-44s %9s %9s %9s %9s %9s%n", "Operation", "Count", "p50 ms", "p99 ms", "p999 ms", "Max ms");
+        boolean any = false;
+        for (OperationMetrics operation : Metrics.getOperations()) {
+            LatencyHistogram.Snapshot snapshot = operation.snapshot();
+            if (snapshot.getCount() == 0) {
+                continue;
+            }
+            any = true;
+            System.out.printf("%-44s %9d %9.3f %9.3f %9.3f %9.3f%n",
+                operation.getService() + "." + operation.getOperation(), snapshot.getCount(),
+                snapshot.valueAtPercentile(50) / 1e6, snapshot.valueAtPercentile(99) / 1e6,
+                snapshot.valueAtPercentile(99.9) / 1e6, snapshot.getMaxNanos() / 1e6);
+        }
+        if (!any) {
+            System.out.println("No operations recorded yet.");
+            return;
+        }
+        System.out.print("Reset metrics? (y/n): ");
+        if (scanner.nextLine().trim().equalsIgnoreCase("y")) {
+            Metrics.resetAll();
+            System.out.println("Metrics reset.");
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,95 @@
+package edu.ccrm.cli;
+
+import edu.ccrm.io.BackupCatalog;
+import edu.ccrm.io.BackupService;
+import edu.ccrm.io.ImportExportService;
+import edu.ccrm.io.MutationJournal;
+import edu.ccrm.io.SnapshotService;
+import edu.ccrm.service.CourseService;
+import edu.ccrm.service.MutationListener;
+import edu.ccrm.service.StudentService;
+
+import java.io.IOException;
+
+/**
+ * The services shared by the interactive menu and batch mode, together
+ * with the snapshot and journal lifecycle that keeps them durable.
+ */
+class ServiceContext {
+    private final StudentService studentService;
+    private final CourseService courseService;
+    private final ImportExportService importExportService;
+    private final BackupService backupService;
+    private final SnapshotService snapshotService;
+    private final BackupCatalog backupCatalog;
+    private MutationJournal journal;
+
+    ServiceContext() {
+        this.courseService = new CourseService();
+        this.studentService = new StudentService(courseService);
+        this.importExportService = new ImportExportService(studentService, courseService);
+        this.backupService = new BackupService();
+        this.snapshotService = new SnapshotService(studentService, courseService);
+        this.backupCatalog = new BackupCatalog(backupService, studentService, courseService);
+    }
+
+    StudentService getStudentService() { return studentService; }
+    CourseService getCourseService() { return courseService; }
+    ImportExportService getImportExportService() { return importExportService; }
+    BackupService getBackupService() { return backupService; }
+    SnapshotService getSnapshotService() { return snapshotService; }
+    BackupCatalog getBackupCatalog() { return backupCatalog; }
+
+    // False when there is no snapshot yet
+    boolean loadSnapshot() throws IOException {
+        return snapshotService.loadSnapshot();
+    }
+
+    // Replays mutations made after the last snapshot, then journals every new one
+    void openJournal() throws IOException {
+        journal = new MutationJournal();
+        journal.replay(studentService, courseService);
+        attachJournal();
+    }
+
+    boolean isJournaling() {
+        return journal != null;
+    }
+
+    // Saves a snapshot; with a journal open this is a checkpoint that also trims the journal
+    void saveSnapshot() throws IOException {
+        if (journal != null) {
+            snapshotService.checkpoint(journal);
+        } else {
+            snapshotService.saveSnapshot();
+        }
+    }
+
+    void closeJournal() throws IOException {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    /**
+     * Swaps the whole in-memory state for the backup's and saves it, so the
+     * journal starts afresh from the restored state.
+     */
+    void restore(BackupCatalog.BackupInfo backup) throws IOException {
+        studentService.setMutationListener(new MutationListener() {});
+        courseService.setMutationListener(new MutationListener() {});
+        try {
+            backupCatalog.restore(backup);
+        } finally {
+            attachJournal();
+        }
+        saveSnapshot();
+    }
+
+    private void attachJournal() {
+        if (journal != null) {
+            studentService.setMutationListener(journal);
+            courseService.setMutationListener(journal);
+        }
+    }
+}
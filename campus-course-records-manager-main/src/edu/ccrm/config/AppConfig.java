@@ -23,6 +23,10 @@ public class AppConfig {
         properties.setProperty("app.version", "1.0.0");
         properties.setProperty("max.credits.per.semester", "18");
         properties.setProperty("backup.enabled", "true");
+        properties.setProperty("backup.retention.daily", "7");
+        properties.setProperty("backup.retention.weekly", "4");
+        properties.setProperty("journal.durability", "SYNC");
+        properties.setProperty("journal.flush.interval.ms", "10");
     }
     
     public static AppConfig getInstance() {
@@ -48,6 +52,10 @@ public class AppConfig {
         return dateTimeFormatter;
     }
     
+    public int getMaxCreditsPerSemester() {
+        return Integer.parseInt(properties.getProperty("max.credits.per.semester"));
+    }
+    
     public String getProperty(String key) {
         return properties.getProperty(key);
     }
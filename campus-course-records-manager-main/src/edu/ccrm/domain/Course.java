@@ -1,17 +1,33 @@
 package edu.ccrm.domain;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Course {
+    // Capacity of a course that takes any number of students
+    public static final int UNLIMITED = 0;
+    
     private final CourseCode courseCode;
-    private String title;
-    private int credits;
-    private String instructor;
-    private Semester semester;
-    private String department;
-    private boolean active;
+    private volatile String title;
+    private volatile int credits;
+    private volatile String instructor;
+    private volatile Semester semester;
+    private final String department;
+    private volatile boolean active;
     private LocalDateTime createdDate;
+    private final int capacity;
+    // Seats are claimed with compare-and-set, so enrolling never blocks on the course
+    private final AtomicInteger seatsTaken = new AtomicInteger();
+    // Student IDs in arrival order; guarded by this, so callers can record a join in the same order
+    private final Set<String> waitlist = new LinkedHashSet<>();
+    private final List<CourseChangeListener> listeners = new CopyOnWriteArrayList<>();
     
     // Private constructor for Builder
     private Course(Builder builder) {
@@ -23,6 +39,7 @@ public class Course {
         this.department = builder.department;
         this.active = true;
         this.createdDate = LocalDateTime.now();
+        this.capacity = builder.capacity;
     }
     
     // Builder static class
@@ -33,6 +50,7 @@ public class Course {
         private String instructor = "TBA";
         private Semester semester = Semester.FALL;
         private String department;
+        private int capacity = UNLIMITED;
         
         public Builder(CourseCode courseCode, String title) {
             this.courseCode = Objects.requireNonNull(courseCode);
@@ -63,6 +81,14 @@ public class Course {
             return this;
         }
         
+        public Builder capacity(int capacity) {
+            if (capacity < 0) {
+                throw new IllegalArgumentException("Capacity cannot be negative");
+            }
+            this.capacity = capacity;
+            return this;
+        }
+        
         public Course build() {
             return new Course(this);
         }
@@ -71,21 +97,144 @@ public class Course {
     // Getters and setters
     public CourseCode getCourseCode() { return courseCode; }
     public String getTitle() { return title; }
-    public void setTitle(String title) { this.title = title; }
+    public synchronized void setTitle(String title) {
+        String old = this.title;
+        this.title = title;
+        fireChanged("title", old);
+    }
     public int getCredits() { return credits; }
     public void setCredits(int credits) { this.credits = credits; }
     public String getInstructor() { return instructor; }
-    public void setInstructor(String instructor) { this.instructor = instructor; }
+    public synchronized void setInstructor(String instructor) {
+        String old = this.instructor;
+        this.instructor = instructor;
+        fireChanged("instructor", old);
+    }
     public Semester getSemester() { return semester; }
-    public void setSemester(Semester semester) { this.semester = semester; }
+    public synchronized void setSemester(Semester semester) {
+        Semester old = this.semester;
+        this.semester = semester;
+        fireChanged("semester", old);
+    }
     public String getDepartment() { return department; }
     public boolean isActive() { return active; }
     public void setActive(boolean active) { this.active = active; }
     public LocalDateTime getCreatedDate() { return createdDate; }
     
+    // Reinstates the persisted creation date when a course is loaded from a snapshot
+    public void restoreCreatedDate(LocalDateTime createdDate) {
+        this.createdDate = Objects.requireNonNull(createdDate);
+    }
+    
+    public int getCapacity() { return capacity; }
+    public boolean isLimited() { return capacity != UNLIMITED; }
+    public int getSeatsTaken() { return seatsTaken.get(); }
+    
+    public int getAvailableSeats() {
+        return isLimited() ? Math.max(0, capacity - seatsTaken.get()) : Integer.MAX_VALUE;
+    }
+    
+    // Takes a seat if one is free; false when the course is full
+    public boolean tryClaimSeat() {
+        if (!isLimited()) {
+            seatsTaken.incrementAndGet();
+            return true;
+        }
+        while (true) {
+            int taken = seatsTaken.get();
+            if (taken >= capacity) {
+                return false;
+            }
+            if (seatsTaken.compareAndSet(taken, taken + 1)) {
+                return true;
+            }
+        }
+    }
+    
+    // Takes a seat whether or not one is free, for enrollments that were already decided
+    public void restoreSeat() {
+        seatsTaken.incrementAndGet();
+    }
+    
+    public void releaseSeat() {
+        int taken = seatsTaken.decrementAndGet();
+        assert taken >= 0 : "Released more seats than were taken in " + courseCode;
+    }
+    
+    // Appends the student to the waitlist; false if they are already on it
+    public synchronized boolean addToWaitlist(String studentId) {
+        Objects.requireNonNull(studentId);
+        return waitlist.add(studentId);
+    }
+    
+    public synchronized boolean removeFromWaitlist(String studentId) {
+        return waitlist.remove(studentId);
+    }
+    
+    // Removes and returns the student at the head of the waitlist, or null if it is empty
+    public synchronized String pollWaitlist() {
+        Iterator<String> it = waitlist.iterator();
+        if (!it.hasNext()) {
+            return null;
+        }
+        String studentId = it.next();
+        it.remove();
+        return studentId;
+    }
+    
+    // Puts a student taken off the head of the waitlist back in front of everyone else
+    public synchronized void returnToWaitlist(String studentId) {
+        Objects.requireNonNull(studentId);
+        List<String> rest = new ArrayList<>(waitlist);
+        waitlist.clear();
+        waitlist.add(studentId);
+        waitlist.addAll(rest);
+    }
+    
+    public synchronized boolean isWaitlisted(String studentId) {
+        return waitlist.contains(studentId);
+    }
+    
+    public synchronized boolean hasWaitlist() {
+        return !waitlist.isEmpty();
+    }
+    
+    // 1-based position, or 0 if the student is not waitlisted
+    public synchronized int getWaitlistPosition(String studentId) {
+        int position = 1;
+        for (String id : waitlist) {
+            if (id.equals(studentId)) {
+                return position;
+            }
+            position++;
+        }
+        return 0;
+    }
+    
+    public synchronized List<String> getWaitlist() {
+        return new ArrayList<>(waitlist);
+    }
+    
+    public void addChangeListener(CourseChangeListener listener) {
+        listeners.add(Objects.requireNonNull(listener));
+    }
+    
+    public void removeChangeListener(CourseChangeListener listener) {
+        listeners.remove(listener);
+    }
+    
+    private void fireChanged(String property, Object oldValue) {
+        for (CourseChangeListener listener : listeners) {
+            listener.courseChanged(this, property, oldValue);
+        }
+    }
+    
     @Override
     public String toString() {
-        return String.format("%s - %s (Credits: %d, Instructor: %s, Semester: %s)", 
-            courseCode, title, credits, instructor, semester.getDisplayName());
+        String seats = isLimited()
+            ? String.format(", Seats: %d/%d, Waitlist: %d", seatsTaken.get(), capacity, getWaitlist().size())
+            : "";
+        return String.format("%s - %s (Credits: %d, Instructor: %s, Semester: %s%s)", 
+            courseCode, title, credits, instructor, semester.getDisplayName(), seats);
     }
 }
\ No newline at end of file
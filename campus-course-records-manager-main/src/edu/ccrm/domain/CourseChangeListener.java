@@ -0,0 +1,9 @@
+package edu.ccrm.domain;
+
+/**
+ * Notified after a mutable property of a {@link Course} changes, so that
+ * services can keep their indexes in step with the course.
+ */
+public interface CourseChangeListener {
+    void courseChanged(Course course, String property, Object oldValue);
+}
@@ -5,9 +5,9 @@ import java.util.Objects;
 
 public abstract class Person {
     protected final String id;
-    protected String fullName;
-    protected String email;
-    protected boolean active;
+    protected volatile String fullName;
+    protected volatile String email;
+    protected volatile boolean active;
     protected LocalDateTime createdDate;
     protected LocalDateTime lastModifiedDate;
     
@@ -44,6 +44,12 @@ public abstract class Person {
     public LocalDateTime getCreatedDate() { return createdDate; }
     public LocalDateTime getLastModifiedDate() { return lastModifiedDate; }
     
+    // Reinstates persisted audit dates when a person is loaded from a snapshot
+    public void restoreAuditDates(LocalDateTime createdDate, LocalDateTime lastModifiedDate) {
+        this.createdDate = Objects.requireNonNull(createdDate);
+        this.lastModifiedDate = Objects.requireNonNull(lastModifiedDate);
+    }
+    
     @Override
     public String toString() {
         return String.format("%s [ID: %s, Email: %s, Active: %s]", 
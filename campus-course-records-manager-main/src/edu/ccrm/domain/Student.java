@@ -2,46 +2,75 @@ package edu.ccrm.domain;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import edu.ccrm.config.AppConfig;
 import edu.ccrm.util.DuplicateEnrollmentException;
 import edu.ccrm.util.MaxCreditLimitExceededException;
 
 public class Student extends Person {
+    // Run with -Dccrm.verifyCaches=true to check the GPA and credit ledger against a full recount on every read
+    private static final boolean VERIFY_CACHES = Boolean.getBoolean("ccrm.verifyCaches");
+    
     private final String regNo;
     private final Map<String, Enrollment> enrollments;
-    private int maxCreditsPerSemester;
+    private volatile int maxCreditsPerSemester;
+    // Credits currently enrolled per semester, kept in step by enroll and unenroll; guarded by this
+    private final Map<Semester, Integer> semesterCredits;
+    // Running GPA inputs, kept in step by Enrollment.setMarks and unenrollFromCourse
+    private double gradePointSum;
+    private int completedCourses;
     
     // Inner class for enrollment details
     public class Enrollment {
         private final String courseId;
+        // Taken from the course at enrollment time; semester is null for restored enrollments of unknown courses
+        private final Semester semester;
+        private final int credits;
         private final LocalDateTime enrollmentDate;
-        private Double marks;
-        private Grade grade;
-        private boolean completed;
+        private volatile Double marks;
+        private volatile Grade grade;
+        private volatile boolean completed;
+        
+        public Enrollment(String courseId, Semester semester, int credits) {
+            this(courseId, semester, credits, LocalDateTime.now());
+        }
         
-        public Enrollment(String courseId) {
+        private Enrollment(String courseId, Semester semester, int credits, LocalDateTime enrollmentDate) {
             this.courseId = Objects.requireNonNull(courseId);
-            this.enrollmentDate = LocalDateTime.now();
+            this.semester = semester;
+            this.credits = credits;
+            this.enrollmentDate = Objects.requireNonNull(enrollmentDate);
             this.marks = null;
             this.grade = null;
             this.completed = false;
         }
         
         public String getCourseId() { return courseId; }
+        public Semester getSemester() { return semester; }
+        public int getCredits() { return credits; }
         public LocalDateTime getEnrollmentDate() { return enrollmentDate; }
         public Double getMarks() { return marks; }
         public void setMarks(Double marks) {
             if (marks != null && (marks < 0 || marks > 100)) {
                 throw new IllegalArgumentException("Marks must be between 0 and 100");
             }
-            this.marks = marks;
-            if (marks != null) {
-                this.grade = Grade.fromMarks(marks);
-                this.completed = true;
+            synchronized (Student.this) {
+                uncountGrade(this);
+                this.marks = marks;
+                if (marks != null) {
+                    this.grade = Grade.fromMarks(marks);
+                    this.completed = true;
+                }
+                countGrade(this);
             }
         }
         public Grade getGrade() { return grade; }
         public boolean isCompleted() { return completed; }
         
+        private boolean countsTowardsGPA() {
+            return completed && grade != null;
+        }
+        
         @Override
         public String toString() {
             return String.format("Course: %s, Marks: %s, Grade: %s, Completed: %s",
@@ -53,13 +82,25 @@ public class Student extends Person {
     public Student(String id, String regNo, String fullName, String email) {
         super(id, fullName, email);
         this.regNo = Objects.requireNonNull(regNo);
-        this.enrollments = new HashMap<>();
-        this.maxCreditsPerSemester = 18;
+        this.enrollments = new ConcurrentHashMap<>();
+        this.semesterCredits = new EnumMap<>(Semester.class);
+        this.maxCreditsPerSemester = AppConfig.getInstance().getMaxCreditsPerSemester();
+    }
+    
+    // The course's credits count against its semester's limit only
+    public synchronized void enrollInCourse(String courseId, Semester semester, int credits) 
+            throws MaxCreditLimitExceededException, DuplicateEnrollmentException {
+        checkEnrollment(courseId, semester, credits);
+        Enrollment enrollment = new Enrollment(courseId, semester, credits);
+        enrollments.put(courseId, enrollment);
+        addCredits(enrollment, credits);
     }
     
-    public void enrollInCourse(String courseId, int credits) 
+    // The checks enrollInCourse applies, without enrolling; lets callers validate before taking a seat
+    public synchronized void checkEnrollment(String courseId, Semester semester, int credits) 
             throws MaxCreditLimitExceededException, DuplicateEnrollmentException {
-        if (getCurrentSemesterCredits() + credits > maxCreditsPerSemester) {
+        Objects.requireNonNull(semester);
+        if (getSemesterCredits(semester) + credits > maxCreditsPerSemester) {
             throw new MaxCreditLimitExceededException(
                 String.format("Cannot exceed max credits per semester: %d", maxCreditsPerSemester));
         }
@@ -68,18 +109,38 @@ public class Student extends Person {
             throw new DuplicateEnrollmentException(
                 String.format("Student already enrolled in course: %s", courseId));
         }
-        
-        enrollments.put(courseId, new Enrollment(courseId));
     }
     
-    public void unenrollFromCourse(String courseId) {
+    /**
+     * Reinstates a persisted enrollment exactly as it was saved, bypassing the
+     * credit and duplicate checks that applied when it was first made.
+     */
+    public synchronized Enrollment restoreEnrollment(String courseId, Semester semester, int credits,
+            LocalDateTime enrollmentDate, Double marks, Grade grade, boolean completed) {
+        Enrollment enrollment = new Enrollment(courseId, semester, credits, enrollmentDate);
+        enrollment.marks = marks;
+        enrollment.grade = grade;
+        enrollment.completed = completed;
+        Enrollment replaced = enrollments.put(courseId, enrollment);
+        if (replaced != null) {
+            uncountGrade(replaced);
+            addCredits(replaced, -replaced.credits);
+        }
+        countGrade(enrollment);
+        addCredits(enrollment, credits);
+        return enrollment;
+    }
+    
+    public synchronized void unenrollFromCourse(String courseId) {
         Enrollment enrollment = enrollments.remove(courseId);
         if (enrollment == null) {
             throw new IllegalArgumentException("Student not enrolled in course: " + courseId);
         }
+        uncountGrade(enrollment);
+        addCredits(enrollment, -enrollment.credits);
     }
     
-    public void recordMarks(String courseId, double marks) {
+    public synchronized void recordMarks(String courseId, double marks) {
         Enrollment enrollment = enrollments.get(courseId);
         if (enrollment == null) {
             throw new IllegalArgumentException("Student not enrolled in course: " + courseId);
@@ -87,7 +148,17 @@ public class Student extends Person {
         enrollment.setMarks(marks);
     }
     
-    public double calculateGPA() {
+    public synchronized double calculateGPA() {
+        double gpa = completedCourses > 0 ? gradePointSum / completedCourses : 0.0;
+        if (VERIFY_CACHES && gpa != recalculateGPA()) {
+            throw new AssertionError(String.format("Cached GPA %.4f for %s differs from recomputed %.4f",
+                gpa, getId(), recalculateGPA()));
+        }
+        return gpa;
+    }
+    
+    // Full recomputation over all enrollments; calculateGPA checks against it when ccrm.verifyCaches is set
+    public synchronized double recalculateGPA() {
         if (enrollments.isEmpty()) return 0.0;
         
         double totalPoints = 0.0;
@@ -103,9 +174,44 @@ public class Student extends Person {
         return completedCourses > 0 ? totalPoints / completedCourses : 0.0;
     }
     
-    private int getCurrentSemesterCredits() {
-        // Simplified - assuming 3 credits per course
-        return enrollments.size() * 3;
+    private void countGrade(Enrollment enrollment) {
+        if (enrollment.countsTowardsGPA()) {
+            gradePointSum += enrollment.getGrade().getPoints();
+            completedCourses++;
+        }
+    }
+    
+    private void uncountGrade(Enrollment enrollment) {
+        if (enrollment.countsTowardsGPA()) {
+            gradePointSum -= enrollment.getGrade().getPoints();
+            completedCourses--;
+        }
+    }
+    
+    private void addCredits(Enrollment enrollment, int delta) {
+        if (enrollment.semester != null) {
+            semesterCredits.merge(enrollment.semester, delta, Integer::sum);
+        }
+    }
+    
+    // Credits enrolled in the given semester, read from the ledger in constant time
+    public synchronized int getSemesterCredits(Semester semester) {
+        int credits = semesterCredits.getOrDefault(semester, 0);
+        if (VERIFY_CACHES && credits != recalculateSemesterCredits(semester)) {
+            throw new AssertionError(String.format("Credit ledger for %s in %s is out of step", getId(), semester));
+        }
+        return credits;
+    }
+    
+    // Full recount over all enrollments; getSemesterCredits checks against it when ccrm.verifyCaches is set
+    public synchronized int recalculateSemesterCredits(Semester semester) {
+        int credits = 0;
+        for (Enrollment enrollment : enrollments.values()) {
+            if (enrollment.semester == semester) {
+                credits += enrollment.credits;
+            }
+        }
+        return credits;
     }
     
     @Override
@@ -0,0 +1,329 @@
+package edu.ccrm.io;
+
+import edu.ccrm.config.AppConfig;
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.Student;
+import edu.ccrm.service.CourseService;
+import edu.ccrm.service.StudentService;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.IsoFields;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Timestamp-ordered view of every backup in the backup directory, folder
+ * and archive alike, with retention and restore on top.
+ *
+ * Retention keeps the newest backup of each of the last
+ * {@code backup.retention.daily} days that have backups and the newest of
+ * each of the last {@code backup.retention.weekly} ISO weeks; everything
+ * else is deleted. Restore loads the backup's binary snapshot and replays
+ * its journal segments directly, so no CSV parsing is involved.
+ */
+public class BackupCatalog {
+    private static final String PREFIX = "backup_";
+    private static final String ARCHIVE_SUFFIX = ".tar.gz";
+
+    public static final class BackupInfo {
+        private final String name;
+        private final Path path;
+        private final LocalDateTime createdAt;
+        private final boolean archive;
+
+        private BackupInfo(String name, Path path, LocalDateTime createdAt, boolean archive) {
+            this.name = name;
+            this.path = path;
+            this.createdAt = createdAt;
+            this.archive = archive;
+        }
+
+        public String getName() { return name; }
+        public Path getPath() { return path; }
+        public LocalDateTime getCreatedAt() { return createdAt; }
+        public boolean isArchive() { return archive; }
+
+        @Override
+        public String toString() {
+            return String.format("%s (%s)", name, archive ? "archive" : "folder");
+        }
+    }
+
+    private static final Comparator<BackupInfo> BY_TIME =
+        Comparator.comparing(BackupInfo::getCreatedAt).thenComparing(BackupInfo::getName);
+
+    private final AppConfig config;
+    private final BackupService backupService;
+    private final StudentService studentService;
+    private final CourseService courseService;
+
+    public BackupCatalog(BackupService backupService, StudentService studentService, CourseService courseService) {
+        this.config = AppConfig.getInstance();
+        this.backupService = backupService;
+        this.studentService = studentService;
+        this.courseService = courseService;
+    }
+
+    // Scans the backup directory; backups whose names carry no timestamp are ignored
+    public NavigableSet<BackupInfo> scan() throws IOException {
+        NavigableSet<BackupInfo> backups = new TreeSet<>(BY_TIME);
+        Path directory = config.getBackupDirectory();
+        if (!Files.exists(directory)) {
+            return backups;
+        }
+        try (Stream<Path> paths = Files.list(directory)) {
+            for (Path path : paths.collect(Collectors.toList())) {
+                String name = path.getFileName().toString();
+                if (!name.startsWith(PREFIX)) {
+                    continue;
+                }
+                boolean archive = name.endsWith(ARCHIVE_SUFFIX) && Files.isRegularFile(path);
+                if (!archive && !Files.isDirectory(path)) {
+                    continue;
+                }
+                String timestamp = name.substring(PREFIX.length(),
+                    archive ? name.length() - ARCHIVE_SUFFIX.length() : name.length());
+                try {
+                    LocalDateTime createdAt = LocalDateTime.parse(timestamp, config.getDateTimeFormatter());
+                    backups.add(new BackupInfo(name, path, createdAt, archive));
+                } catch (DateTimeParseException e) {
+                    // Not one of ours
+                }
+            }
+        }
+        return backups;
+    }
+
+    public BackupInfo find(String name) throws IOException {
+        for (BackupInfo backup : scan()) {
+            if (backup.getName().equals(name)) {
+                return backup;
+            }
+        }
+        return null;
+    }
+
+    // Newest backup taken at or before the given time, or null if there is none
+    public BackupInfo latestAtOrBefore(LocalDateTime time) throws IOException {
+        NavigableSet<BackupInfo> backups = scan();
+        BackupInfo probe = new BackupInfo("\uffff", null, time, false);
+        return backups.floor(probe);
+    }
+
+    /**
+     * Applies the configured retention policy and returns the backups that
+     * were deleted. Objects in the incremental store that no remaining
+     * backup refers to are deleted as well.
+     */
+    public List<BackupInfo> applyRetention() throws IOException {
+        int keepDaily = Integer.parseInt(config.getProperty("backup.retention.daily"));
+        int keepWeekly = Integer.parseInt(config.getProperty("backup.retention.weekly"));
+
+        Set<LocalDate> days = new HashSet<>();
+        Set<Integer> weeks = new HashSet<>();
+        List<BackupInfo> expired = new ArrayList<>();
+        boolean newest = true;
+        for (BackupInfo backup : scan().descendingSet()) {
+            LocalDate day = backup.getCreatedAt().toLocalDate();
+            int week = day.get(IsoFields.WEEK_BASED_YEAR) * 100 + day.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR);
+            boolean keep = newest;
+            if (!days.contains(day) && days.size() < keepDaily) {
+                days.add(day);
+                keep = true;
+            }
+            if (!weeks.contains(week) && weeks.size() < keepWeekly) {
+                weeks.add(week);
+                keep = true;
+            }
+            newest = false;
+            if (!keep) {
+                expired.add(backup);
+            }
+        }
+
+        for (BackupInfo backup : expired) {
+            deleteRecursively(backup.getPath());
+            backupService.forgetManifest(backup.getPath());
+        }
+        if (!expired.isEmpty()) {
+            collectUnreferencedObjects();
+        }
+        System.out.printf("Retention: kept %d daily and %d weekly slots, deleted %d backups%n",
+            days.size(), weeks.size(), expired.size());
+        return expired;
+    }
+
+    /**
+     * Replaces the services' state with the state captured in the backup:
+     * its snapshot followed by its journal segments. The backup is loaded
+     * into separate services first and swapped in only once it has loaded
+     * completely, so a backup without a snapshot (e.g. one taken before
+     * snapshots existed) or a damaged one leaves the current state as it
+     * was. The caller must detach any journal first and make sure nothing
+     * else mutates the services while this runs.
+     */
+    public void restore(BackupInfo backup) throws IOException {
+        long start = System.nanoTime();
+        CourseService stagedCourses = new CourseService();
+        StudentService stagedStudents = new StudentService(stagedCourses);
+
+        long[] replayed;
+        if (backup.isArchive()) {
+            replayed = restoreFromArchive(backup.getPath(), stagedStudents, stagedCourses);
+        } else {
+            replayed = restoreFromFolder(backup.getPath(), stagedStudents, stagedCourses);
+        }
+
+        List<Course> restoredCourses = stagedCourses.getAllCourses();
+        List<Student> restoredStudents = stagedStudents.getAllStudents();
+        // Detaches the staged indexes from the restored courses before the live ones take them over
+        stagedStudents.clear();
+        stagedCourses.clear();
+        List<Course> previousCourses = courseService.getAllCourses();
+        List<Student> previousStudents = studentService.getAllStudents();
+        try {
+            replaceState(restoredCourses, restoredStudents);
+        } catch (RuntimeException e) {
+            replaceState(previousCourses, previousStudents);
+            throw e;
+        }
+
+        System.out.printf("Restored %s: %d students, %d courses (%d journal mutations applied, %d skipped) in %d ms%n",
+            backup.getName(), restoredStudents.size(), restoredCourses.size(),
+            replayed[0], replayed[1], (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void replaceState(List<Course> courses, List<Student> students) {
+        studentService.clear();
+        courseService.clear();
+        courseService.restoreCourses(courses);
+        studentService.restoreStudents(students);
+    }
+
+    private static long[] restoreFromFolder(Path folder, StudentService studentService, CourseService courseService)
+            throws IOException {
+        Path snapshot = folder.resolve(SnapshotService.SNAPSHOT_FILE);
+        if (!new SnapshotService(studentService, courseService).loadSnapshot(snapshot)) {
+            throw new IOException("Backup " + folder.getFileName() + " has no " + SnapshotService.SNAPSHOT_FILE
+                + " and cannot be restored directly");
+        }
+
+        List<Path> segments;
+        try (Stream<Path> paths = Files.list(folder)) {
+            segments = paths
+                .filter(path -> MutationJournal.isSegmentName(path.getFileName().toString()))
+                .sorted(Comparator.comparingLong(path -> MutationJournal.segmentNumberOf(path.getFileName().toString())))
+                .collect(Collectors.toList());
+        }
+        long[] total = new long[2];
+        for (Path segment : segments) {
+            try (InputStream in = Files.newInputStream(segment)) {
+                add(total, MutationJournal.replaySegment(in, segment.getFileName().toString(), studentService, courseService));
+            }
+        }
+        return total;
+    }
+
+    // Streams the archive once: the snapshot is loaded in place, journal segments are held until the end
+    private static long[] restoreFromArchive(Path archive, StudentService studentService, CourseService courseService)
+            throws IOException {
+        Map<Long, byte[]> segments = new TreeMap<>();
+        boolean snapshotFound = false;
+        try (TarArchiveReader tar = new TarArchiveReader(
+                new GZIPInputStream(Files.newInputStream(archive), 1 << 16))) {
+            String name;
+            while ((name = tar.nextFile()) != null) {
+                if (name.equals(SnapshotService.SNAPSHOT_FILE)) {
+                    new SnapshotService(studentService, courseService).loadSnapshot(tar.entryStream(), archive + "!" + name);
+                    snapshotFound = true;
+                } else if (MutationJournal.isSegmentName(name)) {
+                    segments.put(MutationJournal.segmentNumberOf(name), tar.entryStream().readAllBytes());
+                }
+            }
+        }
+        if (!snapshotFound) {
+            throw new IOException("Backup " + archive.getFileName() + " has no " + SnapshotService.SNAPSHOT_FILE
+                + " and cannot be restored directly");
+        }
+        long[] total = new long[2];
+        for (Map.Entry<Long, byte[]> segment : segments.entrySet()) {
+            add(total, MutationJournal.replaySegment(new ByteArrayInputStream(segment.getValue()),
+                "journal-" + segment.getKey() + ".log", studentService, courseService));
+        }
+        return total;
+    }
+
+    private void collectUnreferencedObjects() throws IOException {
+        Path objectStore = config.getBackupDirectory().resolve(BackupService.OBJECT_STORE);
+        if (!Files.exists(objectStore)) {
+            return;
+        }
+        Set<String> referenced = new HashSet<>();
+        for (BackupInfo backup : scan()) {
+            BackupManifest manifest = backup.isArchive() ? null : backupService.manifestFor(backup.getPath());
+            if (manifest != null) {
+                for (BackupManifest.Entry entry : manifest.getEntries()) {
+                    if (entry.hasHash()) {
+                        referenced.add(entry.getHash());
+                    }
+                }
+            }
+        }
+        List<Path> unreferenced;
+        try (Stream<Path> paths = Files.walk(objectStore)) {
+            unreferenced = paths
+                .filter(Files::isRegularFile)
+                .filter(path -> !path.getFileName().toString().endsWith(".tmp"))
+                .filter(path -> !referenced.contains(path.getFileName().toString()))
+                .collect(Collectors.toList());
+        }
+        for (Path object : unreferenced) {
+            Files.deleteIfExists(object);
+        }
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.isDirectory(path)) {
+            Files.deleteIfExists(path);
+            return;
+        }
+        Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static void add(long[] total, long[] counts) {
+        total[0] += counts[0];
+        total[1] += counts[1];
+    }
+}
@@ -0,0 +1,107 @@
+package edu.ccrm.io;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Describes the files in one backup folder: relative path, size, the source
+ * file's modification time and the SHA-256 of its content. Stored as a small
+ * tab-separated file next to the backed-up files.
+ */
+public class BackupManifest {
+    public static final String FILE_NAME = "manifest.tsv";
+    // Full backups copy without hashing and record this instead
+    public static final String NO_HASH = "-";
+    private static final String HEADER = "# ccrm backup manifest v1";
+
+    public static final class Entry {
+        private final String path;
+        private final long size;
+        private final long lastModified;
+        private final String hash;
+
+        public Entry(String path, long size, long lastModified, String hash) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+
+        public String getPath() { return path; }
+        public long getSize() { return size; }
+        public long getLastModified() { return lastModified; }
+        public String getHash() { return hash; }
+        public boolean hasHash() { return !NO_HASH.equals(hash); }
+    }
+
+    private final List<Entry> entries;
+
+    public BackupManifest(List<Entry> entries) {
+        this.entries = Collections.unmodifiableList(new ArrayList<>(entries));
+    }
+
+    public List<Entry> getEntries() { return entries; }
+    public int getFileCount() { return entries.size(); }
+
+    public long getTotalSize() {
+        long total = 0;
+        for (Entry entry : entries) {
+            total += entry.size;
+        }
+        return total;
+    }
+
+    public Map<String, Entry> byPath() {
+        Map<String, Entry> index = new HashMap<>();
+        for (Entry entry : entries) {
+            index.put(entry.path, entry);
+        }
+        return index;
+    }
+
+    public void write(Path backupPath) throws IOException {
+        Path target = backupPath.resolve(FILE_NAME);
+        Path temp = backupPath.resolve(FILE_NAME + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp)) {
+            writer.write(HEADER);
+            writer.newLine();
+            for (Entry entry : entries) {
+                writer.write(entry.path + "\t" + entry.size + "\t" + entry.lastModified + "\t" + entry.hash);
+                writer.newLine();
+            }
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // Returns null when the folder has no manifest, e.g. backups made before manifests existed
+    public static BackupManifest read(Path backupPath) throws IOException {
+        Path source = backupPath.resolve(FILE_NAME);
+        if (!Files.exists(source)) {
+            return null;
+        }
+        List<Entry> entries = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(source)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split("\t");
+                if (parts.length != 4) {
+                    throw new IOException("Malformed manifest line in " + source + ": " + line);
+                }
+                entries.add(new Entry(parts[0], Long.parseLong(parts[1]), Long.parseLong(parts[2]), parts[3]));
+            }
+        }
+        return new BackupManifest(entries);
+    }
+}
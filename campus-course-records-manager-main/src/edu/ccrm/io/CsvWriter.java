@@ -0,0 +1,116 @@
+package edu.ccrm.io;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streaming RFC 4180 writer. Fields are escaped straight into a large
+ * buffer, so rows never exist as intermediate Strings. Fields with commas,
+ * quotes, line breaks or edge whitespace are quoted so that
+ * {@link MappedCsvReader} reads them back unchanged.
+ */
+public class CsvWriter implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final Writer out;
+    private boolean rowStarted;
+    private long rows;
+
+    public CsvWriter(Path filePath, boolean gzip) throws IOException {
+        OutputStream stream = Files.newOutputStream(filePath);
+        if (gzip) {
+            stream = new GZIPOutputStream(stream, BUFFER_SIZE);
+        }
+        this.out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    public CsvWriter field(String value) throws IOException {
+        startField();
+        if (value == null) {
+            return this;
+        }
+        if (!needsQuoting(value)) {
+            out.write(value);
+            return this;
+        }
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.write('"');
+            }
+            out.write(c);
+        }
+        out.write('"');
+        return this;
+    }
+
+    public CsvWriter field(int value) throws IOException {
+        startField();
+        out.write(Integer.toString(value));
+        return this;
+    }
+
+    public CsvWriter field(double value) throws IOException {
+        startField();
+        out.write(Double.toString(value));
+        return this;
+    }
+
+    public CsvWriter field(boolean value) throws IOException {
+        startField();
+        out.write(value ? "true" : "false");
+        return this;
+    }
+
+    public void endRow() throws IOException {
+        out.write('\n');
+        rowStarted = false;
+        rows++;
+    }
+
+    // Rows written so far, header included
+    public long getRowCount() {
+        return rows;
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void startField() throws IOException {
+        if (rowStarted) {
+            out.write(',');
+        }
+        rowStarted = true;
+    }
+
+    private static boolean needsQuoting(String value) {
+        if (value.isEmpty()) {
+            return false;
+        }
+        if (isBlank(value.charAt(0)) || isBlank(value.charAt(value.length() - 1))) {
+            return true;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isBlank(char c) {
+        return c == ' ' || c == '\t';
+    }
+}
@@ -0,0 +1,401 @@
+package edu.ccrm.io;
+
+import edu.ccrm.config.AppConfig;
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.CourseCode;
+import edu.ccrm.domain.Grade;
+import edu.ccrm.domain.Semester;
+import edu.ccrm.domain.Student;
+import edu.ccrm.service.CourseService;
+import edu.ccrm.service.StudentService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * Seeded generator of synthetic students, courses, enrollments and marks
+ * at any scale, e.g. 1M students, 20k courses and 8M enrollments.
+ *
+ * Course popularity follows a Zipf distribution, so a few courses draw
+ * most enrollments while the long tail stays small. Students never exceed
+ * the per-semester credit limit and never take a course twice. Every
+ * student is derived from the seed and its index alone, so the same
+ * settings give the same dataset whether it is written to CSV or loaded
+ * into services, and however many threads generate it.
+ */
+public class DatasetGenerator {
+    public static final List<String> FIRST_NAMES = List.of(
+        "Aarav", "Maya", "Liam", "Priya", "Noah", "Zara", "Ethan", "Ananya", "Lucas", "Isha",
+        "Mateo", "Chloe", "Arjun", "Sofia", "Kenji", "Amara", "Omar", "Elena", "Ravi", "Nadia",
+        "John", "Jane", "Michael", "Fatima", "Wei", "Olivia", "Diego", "Aisha", "Lukas", "Hana");
+    public static final List<String> LAST_NAMES = List.of(
+        "Sharma", "Nguyen", "Garcia", "Okafor", "Smith", "Kowalski", "Tanaka", "Haddad", "Patel", "Rossi",
+        "Kim", "Novak", "Mensah", "Silva", "Ivanova", "Murphy", "Chen", "Fischer", "Khan", "Lopez",
+        "Doe", "Johnson", "Wilson", "Brown", "Davis", "Miller", "Ahmed", "Yilmaz", "Dubois", "Larsen");
+
+    private static final String[][] DEPARTMENTS = {
+        {"CS", "Computer Science"}, {"MATH", "Mathematics"}, {"PHYS", "Physics"}, {"CHEM", "Chemistry"},
+        {"BIO", "Biology"}, {"ECON", "Economics"}, {"HIST", "History"}, {"ENG", "English"},
+        {"PHIL", "Philosophy"}, {"STAT", "Statistics"}, {"EE", "Electrical Engineering"}, {"PSY", "Psychology"}
+    };
+    private static final String[] LEVELS = {
+        "Introduction to", "Foundations of", "Topics in", "Advanced", "Applied", "Seminar in"
+    };
+    private static final String[] TOPICS = {
+        "Algorithms", "Data Systems", "Analysis", "Mechanics", "Ethics", "Methods", "Theory",
+        "Modelling", "Design", "Research Writing", "Networks", "Statistics", "Policy", "Laboratory Practice"
+    };
+    // Most courses carry 3 credits
+    private static final int[] CREDIT_WEIGHTS = {0, 5, 10, 55, 20, 5, 5};
+    private static final LocalDateTime TERM_START = LocalDateTime.of(2024, 8, 26, 9, 0);
+    private static final int ENROLLMENT_WINDOW_MINUTES = 14 * 24 * 60;
+    private static final long COURSE_STREAM = 0x436F7572736573L;
+    // Students generated in parallel per chunk while writing, then written in order
+    private static final int WRITE_CHUNK = 16_384;
+
+    private final long seed;
+    private final int studentCount;
+    private final int courseCount;
+    private final int enrollmentsPerStudent;
+    private final double popularitySkew;
+    private final double markedFraction;
+    private final int maxCreditsPerSemester;
+
+    // Per course index
+    private final int[] credits;
+    private final Semester[] semesters;
+    // Zipf CDF over popularity ranks, and the course index holding each rank
+    private final double[] cumulativePopularity;
+    private final int[] courseByRank;
+
+    public static class Builder {
+        private long seed = 42L;
+        private int students = 10_000;
+        private int courses = 200;
+        private int enrollmentsPerStudent = 8;
+        private double popularitySkew = 1.0;
+        private double markedFraction = 0.7;
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public Builder students(int students) {
+            if (students < 0) {
+                throw new IllegalArgumentException("Student count cannot be negative");
+            }
+            this.students = students;
+            return this;
+        }
+
+        public Builder courses(int courses) {
+            if (courses <= 0) {
+                throw new IllegalArgumentException("At least one course is needed");
+            }
+            this.courses = courses;
+            return this;
+        }
+
+        // Average per student; each student takes between half and one and a half times this
+        public Builder enrollmentsPerStudent(int enrollmentsPerStudent) {
+            if (enrollmentsPerStudent < 0) {
+                throw new IllegalArgumentException("Enrollments per student cannot be negative");
+            }
+            this.enrollmentsPerStudent = enrollmentsPerStudent;
+            return this;
+        }
+
+        // Zipf exponent of course popularity: 0 is uniform, 1 is classic Zipf
+        public Builder popularitySkew(double popularitySkew) {
+            if (popularitySkew < 0) {
+                throw new IllegalArgumentException("Popularity skew cannot be negative");
+            }
+            this.popularitySkew = popularitySkew;
+            return this;
+        }
+
+        // Share of enrollments that already have marks
+        public Builder markedFraction(double markedFraction) {
+            if (markedFraction < 0 || markedFraction > 1) {
+                throw new IllegalArgumentException("Marked fraction must be between 0 and 1");
+            }
+            this.markedFraction = markedFraction;
+            return this;
+        }
+
+        public DatasetGenerator build() {
+            return new DatasetGenerator(this);
+        }
+    }
+
+    // One student and the enrollments drawn for it; marks are in tenths, or -1 when not marked yet
+    private static final class Draw {
+        final Student student;
+        final int[] courses;
+        final int[] marksTenths;
+        final int[] enrolledMinutes;
+        final int count;
+
+        Draw(Student student, int[] courses, int[] marksTenths, int[] enrolledMinutes, int count) {
+            this.student = student;
+            this.courses = courses;
+            this.marksTenths = marksTenths;
+            this.enrolledMinutes = enrolledMinutes;
+            this.count = count;
+        }
+    }
+
+    private DatasetGenerator(Builder builder) {
+        this.seed = builder.seed;
+        this.studentCount = builder.students;
+        this.courseCount = builder.courses;
+        this.enrollmentsPerStudent = builder.enrollmentsPerStudent;
+        this.popularitySkew = builder.popularitySkew;
+        this.markedFraction = builder.markedFraction;
+        this.maxCreditsPerSemester = AppConfig.getInstance().getMaxCreditsPerSemester();
+
+        SplittableRandom random = new SplittableRandom(mix(seed ^ COURSE_STREAM));
+        this.credits = new int[courseCount];
+        this.semesters = new Semester[courseCount];
+        for (int i = 0; i < courseCount; i++) {
+            credits[i] = weighted(random, CREDIT_WEIGHTS);
+            int season = random.nextInt(10);
+            semesters[i] = season < 2 ? Semester.SUMMER : season < 6 ? Semester.FALL : Semester.SPRING;
+        }
+
+        // Ranks are shuffled over courses so popular courses are spread across departments
+        this.courseByRank = IntStream.range(0, courseCount).toArray();
+        for (int i = courseCount - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = courseByRank[i];
+            courseByRank[i] = courseByRank[j];
+            courseByRank[j] = swap;
+        }
+        this.cumulativePopularity = new double[courseCount];
+        double total = 0;
+        for (int rank = 0; rank < courseCount; rank++) {
+            total += 1.0 / Math.pow(rank + 1, popularitySkew);
+            cumulativePopularity[rank] = total;
+        }
+        for (int rank = 0; rank < courseCount; rank++) {
+            cumulativePopularity[rank] /= total;
+        }
+    }
+
+    public int getStudentCount() { return studentCount; }
+    public int getCourseCount() { return courseCount; }
+
+    public static String studentId(int index) {
+        return String.format("S%07d", index + 1);
+    }
+
+    public static String courseId(int index) {
+        return DEPARTMENTS[index % DEPARTMENTS.length][0] + "-" + (100 + index);
+    }
+
+    // New Course objects on every call, since a course belongs to one CourseService
+    public List<Course> generateCourses() {
+        SplittableRandom random = new SplittableRandom(mix(seed ^ ~COURSE_STREAM));
+        int instructors = Math.max(10, courseCount / 4);
+        List<Course> courses = new ArrayList<>(courseCount);
+        for (int i = 0; i < courseCount; i++) {
+            String[] department = DEPARTMENTS[i % DEPARTMENTS.length];
+            String title = LEVELS[random.nextInt(LEVELS.length)] + " " + TOPICS[random.nextInt(TOPICS.length)];
+            courses.add(new Course.Builder(new CourseCode(department[0], String.valueOf(100 + i)), title)
+                .credits(credits[i])
+                .instructor(instructor(random.nextInt(instructors)))
+                .semester(semesters[i])
+                .department(department[1])
+                .build());
+        }
+        return courses;
+    }
+
+    // The student at this index, without enrollments
+    public Student generateStudent(int index) {
+        return draw(index, false).student;
+    }
+
+    /**
+     * Adds the whole dataset to the services, building students with their
+     * enrollments and marks in place instead of replaying them one
+     * operation at a time. Students are generated in parallel.
+     *
+     * Enrollments are attached before each student is added, so a journal
+     * listening on the services records the students but not their
+     * enrollments; save a snapshot afterwards to make the load durable.
+     */
+    public void loadInto(StudentService studentService, CourseService courseService) {
+        long start = System.nanoTime();
+        List<Course> courses = generateCourses();
+        courses.forEach(courseService::addCourse);
+
+        LongAdder enrollments = new LongAdder();
+        IntStream.range(0, studentCount).parallel().forEach(index -> {
+            Draw draw = draw(index, true);
+            for (int e = 0; e < draw.count; e++) {
+                Course course = courses.get(draw.courses[e]);
+                Double marks = draw.marksTenths[e] >= 0 ? draw.marksTenths[e] / 10.0 : null;
+                draw.student.restoreEnrollment(course.getCourseCode().getFullCode(), course.getSemester(),
+                    course.getCredits(), TERM_START.plusMinutes(draw.enrolledMinutes[e]), marks,
+                    marks != null ? Grade.fromMarks(marks) : null, marks != null);
+                course.restoreSeat();
+            }
+            studentService.addStudent(draw.student);
+            enrollments.add(draw.count);
+        });
+        System.out.printf("Dataset loaded: %d students, %d courses, %d enrollments in %d ms%n",
+            studentCount, courseCount, enrollments.sum(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Writes students.csv, courses.csv, enrollments.csv and marks.csv to the
+     * directory, in the formats read by the student and course imports, the
+     * enroll-batch command and the gradebook import.
+     */
+    public void writeCsv(Path directory) throws IOException {
+        long start = System.nanoTime();
+        Files.createDirectories(directory);
+        try (CsvWriter courses = new CsvWriter(directory.resolve("courses.csv"), false)) {
+            courses.field("CourseCode").field("Title").field("Credits").field("Instructor")
+                .field("Semester").field("Department").field("Active").field("Capacity").endRow();
+            for (Course course : generateCourses()) {
+                courses.field(course.getCourseCode().getFullCode())
+                    .field(course.getTitle())
+                    .field(course.getCredits())
+                    .field(course.getInstructor())
+                    .field(course.getSemester().name())
+                    .field(course.getDepartment())
+                    .field(course.isActive())
+                    .field(course.getCapacity())
+                    .endRow();
+            }
+        }
+
+        try (CsvWriter students = new CsvWriter(directory.resolve("students.csv"), false);
+             CsvWriter enrollments = new CsvWriter(directory.resolve("enrollments.csv"), false);
+             CsvWriter marks = new CsvWriter(directory.resolve("marks.csv"), false)) {
+            students.field("ID").field("RegNo").field("FullName").field("Email").field("Active").endRow();
+            enrollments.field("StudentId").field("CourseId").endRow();
+            marks.field("StudentId").field("CourseId").field("Marks").endRow();
+            for (int first = 0; first < studentCount; first += WRITE_CHUNK) {
+                Draw[] chunk = IntStream.range(first, Math.min(studentCount, first + WRITE_CHUNK)).parallel()
+                    .mapToObj(index -> draw(index, true))
+                    .toArray(Draw[]::new);
+                for (Draw draw : chunk) {
+                    Student student = draw.student;
+                    students.field(student.getId())
+                        .field(student.getRegNo())
+                        .field(student.getFullName())
+                        .field(student.getEmail())
+                        .field(student.isActive())
+                        .endRow();
+                    for (int e = 0; e < draw.count; e++) {
+                        String courseId = courseId(draw.courses[e]);
+                        enrollments.field(student.getId()).field(courseId).endRow();
+                        if (draw.marksTenths[e] >= 0) {
+                            marks.field(student.getId()).field(courseId).field(draw.marksTenths[e] / 10.0).endRow();
+                        }
+                    }
+                }
+            }
+            System.out.printf("Dataset written to %s: %d students, %d courses, %d enrollments, %d marks in %d ms%n",
+                directory, studentCount, courseCount, enrollments.getRowCount() - 1, marks.getRowCount() - 1,
+                (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private Draw draw(int index, boolean withEnrollments) {
+        SplittableRandom random = new SplittableRandom(mix(seed ^ mix(index)));
+        String first = FIRST_NAMES.get(random.nextInt(FIRST_NAMES.size()));
+        String last = LAST_NAMES.get(random.nextInt(LAST_NAMES.size()));
+        int entryYear = 2021 + random.nextInt(4);
+        Student student = new Student(studentId(index), String.format("%d%07d", entryYear, index + 1),
+            first + " " + last, (first + "." + last + (index + 1) + "@university.edu").toLowerCase(Locale.ROOT));
+        student.setActive(random.nextInt(100) >= 3);
+        if (!withEnrollments || enrollmentsPerStudent == 0) {
+            return new Draw(student, new int[0], new int[0], new int[0], 0);
+        }
+
+        int low = enrollmentsPerStudent - enrollmentsPerStudent / 2;
+        int target = low + random.nextInt(enrollmentsPerStudent + enrollmentsPerStudent / 2 - low + 1);
+        int[] courses = new int[target];
+        int[] marksTenths = new int[target];
+        int[] enrolledMinutes = new int[target];
+        int[] semesterCredits = new int[Semester.values().length];
+        int count = 0;
+        // Duplicate or over-limit draws are retried a bounded number of times
+        for (int attempt = 0; attempt < target * 4 && count < target; attempt++) {
+            int course = drawCourse(random);
+            Semester semester = semesters[course];
+            if (semesterCredits[semester.ordinal()] + credits[course] > maxCreditsPerSemester
+                    || contains(courses, count, course)) {
+                continue;
+            }
+            semesterCredits[semester.ordinal()] += credits[course];
+            courses[count] = course;
+            enrolledMinutes[count] = random.nextInt(ENROLLMENT_WINDOW_MINUTES);
+            marksTenths[count] = random.nextDouble() < markedFraction
+                ? (int) Math.max(0, Math.min(1000, Math.round((72 + 12 * random.nextGaussian()) * 10)))
+                : -1;
+            count++;
+        }
+        return new Draw(student, courses, marksTenths, enrolledMinutes, count);
+    }
+
+    private int drawCourse(SplittableRandom random) {
+        int rank = Arrays.binarySearch(cumulativePopularity, random.nextDouble());
+        if (rank < 0) {
+            rank = Math.min(-rank - 1, courseCount - 1);
+        }
+        return courseByRank[rank];
+    }
+
+    private static String instructor(int index) {
+        String initial = FIRST_NAMES.get(index % FIRST_NAMES.size()).substring(0, 1);
+        int surname = index / FIRST_NAMES.size();
+        String name = "Dr. " + initial + ". " + LAST_NAMES.get(surname % LAST_NAMES.size());
+        return surname < LAST_NAMES.size() ? name : name + " " + (surname / LAST_NAMES.size() + 1);
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int weighted(SplittableRandom random, int[] weights) {
+        int total = 0;
+        for (int weight : weights) {
+            total += weight;
+        }
+        int pick = random.nextInt(total);
+        for (int i = 0; i < weights.length; i++) {
+            pick -= weights[i];
+            if (pick < 0) {
+                return i;
+            }
+        }
+        return weights.length - 1;
+    }
+
+    // 64-bit finalizer from MurmurHash3; decorrelates the seeds of neighbouring students
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+}
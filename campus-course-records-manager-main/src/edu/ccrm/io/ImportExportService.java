@@ -4,18 +4,44 @@ import edu.ccrm.domain.Student;
 import edu.ccrm.domain.Course;
 import edu.ccrm.domain.CourseCode;
 import edu.ccrm.domain.Semester;
+import edu.ccrm.service.MarksEntry;
+import edu.ccrm.service.MarksOutcome;
 import edu.ccrm.service.StudentService;
 import edu.ccrm.service.CourseService;
 import edu.ccrm.config.AppConfig;
+import edu.ccrm.metrics.ExportEvent;
+import edu.ccrm.metrics.ImportEvent;
+import edu.ccrm.metrics.ImportStageEvent;
+import edu.ccrm.metrics.Metrics;
+import edu.ccrm.metrics.OperationMetrics;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;  
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
 
 public class ImportExportService {
+    private static final OperationMetrics IMPORT_STUDENTS_FROM_CSV = Metrics.operation("ImportExportService", "importStudentsFromCSV");
+    private static final OperationMetrics IMPORT_COURSES_FROM_CSV = Metrics.operation("ImportExportService", "importCoursesFromCSV");
+    private static final OperationMetrics IMPORT_STUDENTS_IN_PARALLEL = Metrics.operation("ImportExportService", "importStudentsInParallel");
+    private static final OperationMetrics IMPORT_COURSES_IN_PARALLEL = Metrics.operation("ImportExportService", "importCoursesInParallel");
+    private static final OperationMetrics IMPORT_GRADEBOOK = Metrics.operation("ImportExportService", "importGradebook");
+    private static final OperationMetrics EXPORT_STUDENTS_TO_CSV = Metrics.operation("ImportExportService", "exportStudentsToCSV");
+    private static final OperationMetrics EXPORT_COURSES_TO_CSV = Metrics.operation("ImportExportService", "exportCoursesToCSV");
+    
+    // Bytes of whole rows handed to each parallel import task
+    private static final long IMPORT_CHUNK_BYTES = 1 << 20;
+    // Parsed records inserted per batch by the sequential imports
+    private static final int IMPORT_BATCH_ROWS = 4096;
+    private static final int GRADEBOOK_BATCH_ROWS = 4096;
+    
     private final StudentService studentService;
     private final CourseService courseService;
     private final AppConfig config;
@@ -26,143 +52,408 @@ public class ImportExportService {
         this.config = AppConfig.getInstance();
     }
     
-    public void importStudentsFromCSV(Path filePath) throws IOException {
+    public ImportReport importStudentsFromCSV(Path filePath) throws IOException {
+        return IMPORT_STUDENTS_FROM_CSV.time(() ->
+            importSequentially(filePath, "students", this::parseStudent, studentService::addStudents));
+    }
+    
+    public ImportReport importCoursesFromCSV(Path filePath) throws IOException {
+        return IMPORT_COURSES_FROM_CSV.time(() ->
+            importSequentially(filePath, "courses", this::parseCourse, courseService::addCourses));
+    }
+    
+    // Parses on the calling thread and inserts every IMPORT_BATCH_ROWS parsed records as one batch
+    private <T> ImportReport importSequentially(Path filePath, String dataset, Function<MappedCsvReader.Row, T> parser,
+            Function<List<T>, String[]> inserter) throws IOException {
         if (!Files.exists(filePath)) {
             throw new IOException("File not found: " + filePath);
         }
         
-        try (Stream<String> lines = Files.lines(filePath)) {
-            lines.skip(1) // Skip header
-                .map(this::parseStudentFromCSV)
-                .forEach(student -> {
-                    if (student != null) {
-                        try {
-                            studentService.addStudent(student);
-                        } catch (Exception e) {
-                            System.err.println("Error adding student: " + e.getMessage());
-                        }
-                    }
-                });
-        }
-        System.out.println("Students imported successfully from: " + filePath);
-    }
-    
-    public void importCoursesFromCSV(Path filePath) throws IOException {
+        long start = System.nanoTime();
+        ImportEvent event = new ImportEvent();
+        event.begin();
+        ChunkResult result = new ChunkResult();
+        List<T> records = new ArrayList<>(IMPORT_BATCH_ROWS);
+        List<Long> lineNumbers = new ArrayList<>(IMPORT_BATCH_ROWS);
+        new MappedCsvReader(filePath, true).forEachRow(row -> {
+            result.totalRows++;
+            parseInto(row, parser, records, lineNumbers, result);
+            if (records.size() == IMPORT_BATCH_ROWS) {
+                insertBatch(records, lineNumbers, inserter, result);
+                records.clear();
+                lineNumbers.clear();
+            }
+        });
+        if (!records.isEmpty()) {
+            insertBatch(records, lineNumbers, inserter, result);
+        }
+        commitImport(event, filePath, dataset, result.totalRows, result.importedRows);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        return new ImportReport(filePath, result.totalRows, result.importedRows, result.rejectedLines, elapsedMillis);
+    }
+    
+    public ImportReport importStudentsInParallel(Path filePath) throws IOException {
+        return IMPORT_STUDENTS_IN_PARALLEL.time(() ->
+            importInParallel(filePath, "students", this::parseStudent, studentService::addStudents));
+    }
+    
+    public ImportReport importCoursesInParallel(Path filePath) throws IOException {
+        return IMPORT_COURSES_IN_PARALLEL.time(() ->
+            importInParallel(filePath, "courses", this::parseCourse, courseService::addCourses));
+    }
+    
+    /*
+     * Splits the file into byte ranges of whole rows and has a fork-join pool
+     * parse and insert each range straight from the mapped file. Only the
+     * records of the ranges being worked on exist at any time, so memory
+     * stays flat on very large files.
+     */
+    private <T> ImportReport importInParallel(Path filePath, String dataset, Function<MappedCsvReader.Row, T> parser,
+            Function<List<T>, String[]> inserter) throws IOException {
         if (!Files.exists(filePath)) {
             throw new IOException("File not found: " + filePath);
         }
         
-        try (Stream<String> lines = Files.lines(filePath)) {
-            lines.skip(1) // Skip header
-                .map(this::parseCourseFromCSV)
-                .forEach(course -> {
-                    if (course != null) {
-                        try {
-                            courseService.addCourse(course);
-                        } catch (Exception e) {
-                            System.err.println("Error adding course: " + e.getMessage());
-                        }
-                    }
-                });
-        }
-        System.out.println("Courses imported successfully from: " + filePath);
+        long start = System.nanoTime();
+        ImportEvent event = new ImportEvent();
+        event.begin();
+        String file = filePath.toString();
+        MappedCsvReader reader = new MappedCsvReader(filePath, true);
+        // The read stage only finds row boundaries; rows are counted by the parse stages
+        ImportStageEvent read = new ImportStageEvent();
+        read.begin();
+        List<MappedCsvReader.Range> ranges = reader.split(IMPORT_CHUNK_BYTES);
+        read.end();
+        if (read.shouldCommit()) {
+            read.file = file;
+            read.stage = ImportStageEvent.READ;
+            read.bytes = ranges.isEmpty() ? 0 : ranges.get(ranges.size() - 1).getEnd();
+            read.commit();
+        }
+        
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            List<ForkJoinTask<ChunkResult>> chunks = new ArrayList<>(ranges.size());
+            for (MappedCsvReader.Range range : ranges) {
+                chunks.add(pool.submit(() -> processChunk(reader, range, file, parser, inserter)));
+            }
+            
+            long totalRows = 0;
+            long importedRows = 0;
+            Map<Long, String> rejectedLines = new HashMap<>();
+            for (ForkJoinTask<ChunkResult> chunk : chunks) {
+                ChunkResult result = chunk.get();
+                totalRows += result.totalRows;
+                importedRows += result.importedRows;
+                rejectedLines.putAll(result.rejectedLines);
+            }
+            commitImport(event, filePath, dataset, totalRows, importedRows);
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            return new ImportReport(filePath, totalRows, importedRows, rejectedLines, elapsedMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted: " + filePath, e);
+        } catch (ExecutionException e) {
+            throw new IOException("Import failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
     }
     
-    public void exportStudentsToCSV(Path filePath) throws IOException {
-        List<String> lines = studentService.getAllStudents().stream()
-            .map(this::convertStudentToCSV)
-            .collect(Collectors.toList());
-        
-        // Add header
-        lines.add(0, "ID,RegNo,FullName,Email,Active");
+    // Parses the whole range first, then inserts the parsed records as one batch
+    private <T> ChunkResult processChunk(MappedCsvReader reader, MappedCsvReader.Range range, String file,
+            Function<MappedCsvReader.Row, T> parser, Function<List<T>, String[]> inserter) throws IOException {
+        ChunkResult result = new ChunkResult();
+        ImportStageEvent parse = new ImportStageEvent();
+        parse.begin();
+        List<T> records = new ArrayList<>();
+        List<Long> lineNumbers = new ArrayList<>();
+        reader.forEachRow(range, row -> {
+            result.totalRows++;
+            parseInto(row, parser, records, lineNumbers, result);
+        });
+        parse.end();
+        if (parse.shouldCommit()) {
+            parse.file = file;
+            parse.stage = ImportStageEvent.PARSE;
+            parse.records = result.totalRows;
+            parse.rejected = result.rejectedLines.size();
+            parse.bytes = range.getLength();
+            parse.commit();
+        }
         
-        Files.write(filePath, lines);
-        System.out.println("Students exported successfully to: " + filePath);
+        ImportStageEvent insert = new ImportStageEvent();
+        insert.begin();
+        int parseRejected = result.rejectedLines.size();
+        insertBatch(records, lineNumbers, inserter, result);
+        insert.end();
+        if (insert.shouldCommit()) {
+            insert.file = file;
+            insert.stage = ImportStageEvent.INSERT;
+            insert.records = result.importedRows;
+            insert.rejected = result.rejectedLines.size() - parseRejected;
+            insert.commit();
+        }
+        return result;
     }
     
-    public void exportCoursesToCSV(Path filePath) throws IOException {
-        List<String> lines = courseService.getAllCourses().stream()
-            .map(this::convertCourseToCSV)
-            .collect(Collectors.toList());
+    // Adds the parsed record, or the reason the row was rejected, to the result
+    private static <T> void parseInto(MappedCsvReader.Row row, Function<MappedCsvReader.Row, T> parser, List<T> records,
+            List<Long> lineNumbers, ChunkResult result) {
+        try {
+            T record = parser.apply(row);
+            if (record == null) {
+                result.rejectedLines.put(row.getLineNumber(), "Missing required fields");
+            } else {
+                records.add(record);
+                lineNumbers.add(row.getLineNumber());
+            }
+        } catch (RuntimeException e) {
+            result.rejectedLines.put(row.getLineNumber(), e.getMessage());
+        }
+    }
+    
+    private static <T> void insertBatch(List<T> records, List<Long> lineNumbers, Function<List<T>, String[]> inserter,
+            ChunkResult result) {
+        String[] rejections = inserter.apply(records);
+        for (int i = 0; i < rejections.length; i++) {
+            if (rejections[i] == null) {
+                result.importedRows++;
+            } else {
+                result.rejectedLines.put(lineNumbers.get(i), rejections[i]);
+            }
+        }
+    }
+    
+    /**
+     * Streams a gradebook (StudentID, CourseCode, Marks after a header) and
+     * records the marks in batches through StudentService.recordMarksAll,
+     * so rankings are refreshed once per student per batch. Rows naming an
+     * unknown student, a course the student is not enrolled in or invalid
+     * marks end up in the report's rejected lines.
+     */
+    public ImportReport importGradebook(Path filePath) throws IOException {
+        return IMPORT_GRADEBOOK.time(() -> recordGradebook(filePath));
+    }
+    
+    private ImportReport recordGradebook(Path filePath) throws IOException {
+        long start = System.nanoTime();
+        if (!Files.exists(filePath)) {
+            throw new IOException("File not found: " + filePath);
+        }
         
-        // Add header
-        lines.add(0, "CourseCode,Title,Credits,Instructor,Semester,Department,Active");
+        ImportEvent event = new ImportEvent();
+        event.begin();
+        Map<Long, String> rejectedLines = new HashMap<>();
+        List<MarksEntry> batch = new ArrayList<>(GRADEBOOK_BATCH_ROWS);
+        List<Long> batchLines = new ArrayList<>(GRADEBOOK_BATCH_ROWS);
+        long[] rows = new long[2]; // total, recorded
+        new MappedCsvReader(filePath, true).forEachRow(row -> {
+            rows[0]++;
+            if (row.getFieldCount() < 3) {
+                rejectedLines.put(row.getLineNumber(), "Missing required fields");
+                return;
+            }
+            String marks = row.getString(2).trim();
+            try {
+                batch.add(new MarksEntry(row.getString(0), row.getString(1), Double.parseDouble(marks)));
+                batchLines.add(row.getLineNumber());
+            } catch (NumberFormatException e) {
+                rejectedLines.put(row.getLineNumber(), "Invalid marks: " + marks);
+                return;
+            }
+            if (batch.size() == GRADEBOOK_BATCH_ROWS) {
+                rows[1] += applyGradebookBatch(filePath, batch, batchLines, rejectedLines);
+                batch.clear();
+                batchLines.clear();
+            }
+        });
+        if (!batch.isEmpty()) {
+            rows[1] += applyGradebookBatch(filePath, batch, batchLines, rejectedLines);
+        }
         
-        Files.write(filePath, lines);
-        System.out.println("Courses exported successfully to: " + filePath);
+        commitImport(event, filePath, "gradebook", rows[0], rows[1]);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        return new ImportReport(filePath, rows[0], rows[1], rejectedLines, elapsedMillis);
     }
     
-    private Student parseStudentFromCSV(String line) {
-        try {
-            String[] parts = line.split(",");
-            if (parts.length >= 4) {
-                Student student = new Student(
-                    parts[0].trim(), 
-                    parts[1].trim(), 
-                    parts[2].trim(), 
-                    parts[3].trim()
-                );
-                if (parts.length > 4) {
-                    student.setActive(Boolean.parseBoolean(parts[4].trim()));
-                }
-                return student;
+    private long applyGradebookBatch(Path filePath, List<MarksEntry> batch, List<Long> lines,
+            Map<Long, String> rejectedLines) {
+        ImportStageEvent event = new ImportStageEvent();
+        event.begin();
+        MarksOutcome[] outcomes = studentService.recordMarksAll(batch);
+        long recorded = 0;
+        for (int i = 0; i < outcomes.length; i++) {
+            MarksEntry entry = batch.get(i);
+            switch (outcomes[i]) {
+                case RECORDED:
+                    recorded++;
+                    break;
+                case STUDENT_NOT_FOUND:
+                    rejectedLines.put(lines.get(i), "Unknown student: " + entry.getStudentId());
+                    break;
+                case NOT_ENROLLED:
+                    rejectedLines.put(lines.get(i), "Student " + entry.getStudentId() + " is not enrolled in " + entry.getCourseId());
+                    break;
+                case INVALID_MARKS:
+                    rejectedLines.put(lines.get(i), "Marks must be between 0 and 100: " + entry.getMarks());
+                    break;
             }
-        } catch (Exception e) {
-            System.err.println("Error parsing student from CSV: " + e.getMessage());
         }
-        return null;
+        event.end();
+        if (event.shouldCommit()) {
+            event.file = filePath.toString();
+            event.stage = ImportStageEvent.INSERT;
+            event.records = recorded;
+            event.rejected = outcomes.length - recorded;
+            event.commit();
+        }
+        return recorded;
     }
     
-    private Course parseCourseFromCSV(String line) {
-        try {
-            String[] parts = line.split(",");
-            if (parts.length >= 6) {
-                String[] codeParts = parts[0].trim().split("-");
-                if (codeParts.length != 2) {
-                    System.err.println("Invalid course code format: " + parts[0]);
-                    return null;
-                }
-                
-                CourseCode courseCode = new CourseCode(codeParts[0].trim(), codeParts[1].trim());
-                
-                Course course = new Course.Builder(courseCode, parts[1].trim())
-                    .credits(Integer.parseInt(parts[2].trim()))
-                    .instructor(parts[3].trim())
-                    .semester(Semester.valueOf(parts[4].trim().toUpperCase()))
-                    .department(parts[5].trim())
-                    .build();
-                
-                if (parts.length > 6) {
-                    course.setActive(Boolean.parseBoolean(parts[6].trim()));
-                }
-                
-                return course;
+    private static void commitImport(ImportEvent event, Path filePath, String dataset, long rows, long imported) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.file = filePath.toString();
+            event.dataset = dataset;
+            event.rows = rows;
+            event.imported = imported;
+            event.rejected = rows - imported;
+            event.bytes = filePath.toFile().length();
+            event.commit();
+        }
+    }
+    
+    private static class ChunkResult {
+        long totalRows;
+        long importedRows;
+        final Map<Long, String> rejectedLines = new HashMap<>();
+    }
+    
+    public void exportStudentsToCSV(Path filePath) throws IOException {
+        exportStudentsToCSV(filePath, false);
+    }
+    
+    // Streams rows straight from the service, so heap use does not grow with the data set
+    public void exportStudentsToCSV(Path filePath, boolean gzip) throws IOException {
+        EXPORT_STUDENTS_TO_CSV.time(() -> writeStudentsCsv(filePath, gzip));
+    }
+    
+    private void writeStudentsCsv(Path filePath, boolean gzip) throws IOException {
+        ExportEvent event = new ExportEvent();
+        event.begin();
+        long records;
+        try (CsvWriter writer = new CsvWriter(filePath, gzip)) {
+            writer.field("ID").field("RegNo").field("FullName").field("Email").field("Active").endRow();
+            for (Student student : studentService.getStudentsView()) {
+                writeStudent(writer, student);
             }
-        } catch (Exception e) {
-            System.err.println("Error parsing course from CSV: " + e.getMessage());
+            records = writer.getRowCount() - 1;
         }
-        return null;
+        commitExport(event, filePath, "students", records, gzip);
+        System.out.println("Students exported successfully to: " + filePath);
     }
     
-    private String convertStudentToCSV(Student student) {
-        return String.join(",",
-            student.getId(),
-            student.getRegNo(),
-            student.getFullName(),
-            student.getEmail(),
-            String.valueOf(student.isActive())
-        );
+    public void exportCoursesToCSV(Path filePath) throws IOException {
+        exportCoursesToCSV(filePath, false);
     }
     
-    private String convertCourseToCSV(Course course) {
-        return String.join(",",
-            course.getCourseCode().getFullCode(),
-            course.getTitle(),
-            String.valueOf(course.getCredits()),
-            course.getInstructor(),
-            course.getSemester().name(),
-            course.getDepartment(),
-            String.valueOf(course.isActive())
+    public void exportCoursesToCSV(Path filePath, boolean gzip) throws IOException {
+        EXPORT_COURSES_TO_CSV.time(() -> writeCoursesCsv(filePath, gzip));
+    }
+    
+    private void writeCoursesCsv(Path filePath, boolean gzip) throws IOException {
+        ExportEvent event = new ExportEvent();
+        event.begin();
+        long records;
+        try (CsvWriter writer = new CsvWriter(filePath, gzip)) {
+            writer.field("CourseCode").field("Title").field("Credits").field("Instructor")
+                .field("Semester").field("Department").field("Active").field("Capacity").endRow();
+            for (Course course : courseService.getCoursesView()) {
+                writeCourse(writer, course);
+            }
+            records = writer.getRowCount() - 1;
+        }
+        commitExport(event, filePath, "courses", records, gzip);
+        System.out.println("Courses exported successfully to: " + filePath);
+    }
+    
+    private static void commitExport(ExportEvent event, Path filePath, String dataset, long records, boolean gzip) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.file = filePath.toString();
+            event.dataset = dataset;
+            event.records = records;
+            event.gzip = gzip;
+            event.bytes = filePath.toFile().length();
+            event.commit();
+        }
+    }
+    
+    // Returns null when the row has too few fields, throws on malformed values
+    private Student parseStudent(MappedCsvReader.Row row) {
+        if (row.getFieldCount() < 4) {
+            return null;
+        }
+        Student student = new Student(
+            row.getString(0), 
+            row.getString(1), 
+            row.getString(2), 
+            row.getString(3)
         );
+        if (row.getFieldCount() > 4) {
+            student.setActive(row.getBoolean(4));
+        }
+        return student;
+    }
+    
+    // Returns null when the row has too few fields, throws on malformed values
+    private Course parseCourse(MappedCsvReader.Row row) {
+        if (row.getFieldCount() < 6) {
+            return null;
+        }
+        String[] codeParts = row.getString(0).split("-");
+        if (codeParts.length != 2) {
+            throw new IllegalArgumentException("Invalid course code format: " + row.getString(0));
+        }
+        
+        CourseCode courseCode = new CourseCode(codeParts[0].trim(), codeParts[1].trim());
+        
+        Course.Builder builder = new Course.Builder(courseCode, row.getString(1))
+            .credits(row.getInt(2))
+            .instructor(row.getString(3))
+            .semester(Semester.valueOf(row.getString(4).trim().toUpperCase()))
+            .department(row.getString(5));
+        if (row.getFieldCount() > 7 && !row.isEmpty(7)) {
+            builder.capacity(row.getInt(7));
+        }
+        Course course = builder.build();
+        
+        if (row.getFieldCount() > 6) {
+            course.setActive(row.getBoolean(6));
+        }
+        
+        return course;
+    }
+    
+    private void writeStudent(CsvWriter writer, Student student) throws IOException {
+        writer.field(student.getId())
+            .field(student.getRegNo())
+            .field(student.getFullName())
+            .field(student.getEmail())
+            .field(student.isActive())
+            .endRow();
+    }
+    
+    private void writeCourse(CsvWriter writer, Course course) throws IOException {
+        writer.field(course.getCourseCode().getFullCode())
+            .field(course.getTitle())
+            .field(course.getCredits())
+            .field(course.getInstructor())
+            .field(course.getSemester().name())
+            .field(course.getDepartment())
+            .field(course.isActive())
+            .field(course.getCapacity())
+            .endRow();
     }
 }
\ No newline at end of file
@@ -0,0 +1,45 @@
+package edu.ccrm.io;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Outcome of a bulk import: row counts, the rejected line numbers with the
+ * reason for each, and the wall-clock time taken.
+ */
+public class ImportReport {
+    private final Path source;
+    private final long totalRows;
+    private final long importedRows;
+    private final SortedMap<Long, String> rejectedLines;
+    private final long elapsedMillis;
+
+    public ImportReport(Path source, long totalRows, long importedRows,
+                        Map<Long, String> rejectedLines, long elapsedMillis) {
+        this.source = source;
+        this.totalRows = totalRows;
+        this.importedRows = importedRows;
+        this.rejectedLines = Collections.unmodifiableSortedMap(new TreeMap<>(rejectedLines));
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public Path getSource() { return source; }
+    public long getTotalRows() { return totalRows; }
+    public long getImportedRows() { return importedRows; }
+    public long getRejectedRows() { return rejectedLines.size(); }
+    public SortedMap<Long, String> getRejectedLines() { return rejectedLines; }
+    public long getElapsedMillis() { return elapsedMillis; }
+
+    public double getRowsPerSecond() {
+        return elapsedMillis > 0 ? totalRows * 1000.0 / elapsedMillis : totalRows;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Import of %s: %d rows, %d imported, %d rejected in %d ms (%.0f rows/s)",
+            source, totalRows, importedRows, getRejectedRows(), elapsedMillis, getRowsPerSecond());
+    }
+}
@@ -0,0 +1,461 @@
+package edu.ccrm.io;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * CSV reader over a memory-mapped file.
+ *
+ * The mapping is bulk-copied a block at a time into a reusable heap array
+ * and the parser scans that array, which the JIT compiles to much tighter
+ * loops than per-byte reads of the mapping. Rows are handed to the caller
+ * as a reusable {@link Row} holding field offsets into the block, so no
+ * per-line String or String[] is created; only the fields the caller asks
+ * for as strings are decoded, straight from the block. Supports
+ * RFC 4180 quoting (embedded commas, line breaks and doubled quotes) and
+ * both LF and CRLF line endings. Unquoted fields are trimmed.
+ *
+ * Large files can be cut with {@link #split} into ranges of whole rows
+ * that are parsed independently, e.g. on several threads.
+ */
+public class MappedCsvReader {
+    private static final long MAX_WINDOW = 256L * 1024 * 1024;
+    // Initial size of the heap block rows are parsed from; it grows to fit longer rows
+    private static final int BLOCK_SIZE = 1 << 20;
+
+    @FunctionalInterface
+    public interface RowHandler {
+        void handle(Row row);
+    }
+
+    /**
+     * Fields of the current row. Only valid inside {@link RowHandler#handle};
+     * the reader reuses it for the next row.
+     */
+    public static final class Row {
+        private byte[] block;
+        private long lineNumber;
+        private int lineBreaks;
+        private int fieldCount;
+        private int[] starts = new int[16];
+        private int[] ends = new int[16];
+        // Whether the field holds doubled quotes that decoding collapses
+        private boolean[] escaped = new boolean[16];
+        private byte[] scratch = new byte[256];
+
+        private Row(int blockSize) {
+            this.block = new byte[blockSize];
+        }
+
+        public long getLineNumber() { return lineNumber; }
+        public int getFieldCount() { return fieldCount; }
+
+        public String getString(int field) {
+            checkField(field);
+            if (!escaped[field]) {
+                return new String(block, starts[field], ends[field] - starts[field], StandardCharsets.UTF_8);
+            }
+            int length = unescapeField(field);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        public int getInt(int field) {
+            checkField(field);
+            int position = starts[field];
+            int end = ends[field];
+            boolean negative = false;
+            if (position < end && (block[position] == '-' || block[position] == '+')) {
+                negative = block[position] == '-';
+                position++;
+            }
+            if (position == end) {
+                throw new NumberFormatException("Not a number: \"" + getString(field) + "\"");
+            }
+            long value = 0;
+            for (; position < end; position++) {
+                int digit = block[position] - '0';
+                if (digit < 0 || digit > 9) {
+                    throw new NumberFormatException("Not a number: \"" + getString(field) + "\"");
+                }
+                value = value * 10 + digit;
+                if (value > Integer.MAX_VALUE + 1L) {
+                    throw new NumberFormatException("Number out of range: \"" + getString(field) + "\"");
+                }
+            }
+            value = negative ? -value : value;
+            if (value > Integer.MAX_VALUE) {
+                throw new NumberFormatException("Number out of range: \"" + getString(field) + "\"");
+            }
+            return (int) value;
+        }
+
+        // Same rule as Boolean.parseBoolean: true only for a case-insensitive "true"
+        public boolean getBoolean(int field) {
+            checkField(field);
+            int start = starts[field];
+            if (ends[field] - start != 4) {
+                return false;
+            }
+            return (block[start] | 0x20) == 't' && (block[start + 1] | 0x20) == 'r'
+                && (block[start + 2] | 0x20) == 'u' && (block[start + 3] | 0x20) == 'e';
+        }
+
+        public boolean isEmpty(int field) {
+            checkField(field);
+            return starts[field] == ends[field];
+        }
+
+        private void checkField(int field) {
+            if (field < 0 || field >= fieldCount) {
+                throw new IndexOutOfBoundsException(
+                    "Field " + field + " requested but line " + lineNumber + " has " + fieldCount);
+            }
+        }
+
+        // Copies the field into scratch, collapsing doubled quotes, and returns its length
+        private int unescapeField(int field) {
+            int start = starts[field];
+            int end = ends[field];
+            if (scratch.length < end - start) {
+                scratch = new byte[Math.max(end - start, scratch.length * 2)];
+            }
+            int length = 0;
+            for (int position = start; position < end; position++) {
+                byte b = block[position];
+                scratch[length++] = b;
+                if (b == '"') {
+                    position++; // Skip the second quote of an escaped pair
+                }
+            }
+            return length;
+        }
+
+        private void addField(int start, int end, boolean isEscaped) {
+            if (fieldCount == starts.length) {
+                starts = Arrays.copyOf(starts, fieldCount * 2);
+                ends = Arrays.copyOf(ends, fieldCount * 2);
+                escaped = Arrays.copyOf(escaped, fieldCount * 2);
+            }
+            starts[fieldCount] = start;
+            ends[fieldCount] = end;
+            escaped[fieldCount] = isEscaped;
+            fieldCount++;
+        }
+    }
+
+    /**
+     * A run of whole rows from byte start (inclusive) to end (exclusive),
+     * whose first row starts on line firstLine.
+     */
+    public static final class Range {
+        private final long start;
+        private final long end;
+        private final long firstLine;
+
+        private Range(long start, long end, long firstLine) {
+            this.start = start;
+            this.end = end;
+            this.firstLine = firstLine;
+        }
+
+        public long getStart() { return start; }
+        public long getEnd() { return end; }
+        public long getFirstLine() { return firstLine; }
+        public long getLength() { return end - start; }
+    }
+
+    // States of the boundary scan in split, mirroring how parseRow reads a row
+    private static final int FIELD_START = 0;
+    private static final int UNQUOTED = 1;
+    private static final int QUOTED = 2;
+    private static final int QUOTE_SEEN = 3;
+    private static final int AFTER_QUOTE = 4;
+
+    private final Path filePath;
+    private final boolean skipHeader;
+
+    public MappedCsvReader(Path filePath, boolean skipHeader) {
+        this.filePath = filePath;
+        this.skipHeader = skipHeader;
+    }
+
+    /**
+     * Streams every non-blank row to the handler and returns the number of
+     * rows delivered. Files larger than one mapping window are mapped in
+     * consecutive windows that always start on a row boundary.
+     */
+    public long forEachRow(RowHandler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            Cursor cursor = new Cursor(handler, blockSizeFor(fileSize), 1, skipHeader);
+            long windowStart = 0;
+
+            while (windowStart < fileSize) {
+                int windowLength = (int) Math.min(MAX_WINDOW, fileSize - windowStart);
+                boolean lastWindow = windowStart + windowLength == fileSize;
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowLength);
+                int consumed = cursor.deliverRows(buffer, windowLength, lastWindow);
+                if (consumed == 0 && !lastWindow) {
+                    throw new IOException("Row at line " + cursor.lineNumber + " is longer than " + MAX_WINDOW + " bytes");
+                }
+                windowStart += consumed;
+            }
+            return cursor.rows;
+        }
+    }
+
+    /**
+     * Cuts the file into ranges of at least targetBytes (except the last)
+     * that start and end on row boundaries, honouring quoted line breaks.
+     * The scan only tracks quoting and decodes nothing, so it allocates no
+     * more than one block and the range list; the header row, if any, stays
+     * at the start of the first range.
+     */
+    public List<Range> split(long targetBytes) throws IOException {
+        List<Range> ranges = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            byte[] block = new byte[blockSizeFor(fileSize)];
+            long rangeStart = 0;
+            long rangeFirstLine = 1;
+            long lineNumber = 1;
+            int state = FIELD_START;
+            // A row ended on '\r'; its end depends on whether '\n' follows
+            boolean pendingCarriageReturn = false;
+
+            for (long windowStart = 0; windowStart < fileSize; windowStart += MAX_WINDOW) {
+                int windowLength = (int) Math.min(MAX_WINDOW, fileSize - windowStart);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowLength);
+                for (int blockStart = 0; blockStart < windowLength; blockStart += block.length) {
+                    int blockLength = Math.min(block.length, windowLength - blockStart);
+                    buffer.get(blockStart, block, 0, blockLength);
+                    long blockOffset = windowStart + blockStart;
+                    for (int i = 0; i < blockLength; i++) {
+                        byte b = block[i];
+                        if (pendingCarriageReturn) {
+                            pendingCarriageReturn = false;
+                            long rowEnd = blockOffset + i + (b == '\n' ? 1 : 0);
+                            if (rowEnd - rangeStart >= targetBytes) {
+                                ranges.add(new Range(rangeStart, rowEnd, rangeFirstLine));
+                                rangeStart = rowEnd;
+                                rangeFirstLine = lineNumber;
+                            }
+                            if (b == '\n') {
+                                continue;
+                            }
+                        }
+                        if (state == QUOTE_SEEN) {
+                            if (b == '"') {
+                                state = QUOTED;
+                                continue;
+                            }
+                            state = AFTER_QUOTE;
+                        }
+                        if (state == QUOTED) {
+                            if (b == '"') {
+                                state = QUOTE_SEEN;
+                            } else if (b == '\n') {
+                                lineNumber++;
+                            }
+                            continue;
+                        }
+                        if (b == ',') {
+                            state = FIELD_START;
+                        } else if (b == '\n' || b == '\r') {
+                            state = FIELD_START;
+                            lineNumber++;
+                            if (b == '\r') {
+                                pendingCarriageReturn = true;
+                                continue;
+                            }
+                            long rowEnd = blockOffset + i + 1;
+                            if (rowEnd - rangeStart >= targetBytes) {
+                                ranges.add(new Range(rangeStart, rowEnd, rangeFirstLine));
+                                rangeStart = rowEnd;
+                                rangeFirstLine = lineNumber;
+                            }
+                        } else if (state == FIELD_START) {
+                            if (b == '"') {
+                                state = QUOTED;
+                            } else if (!isBlank(b)) {
+                                state = UNQUOTED;
+                            }
+                        }
+                    }
+                }
+            }
+            if (rangeStart < fileSize) {
+                ranges.add(new Range(rangeStart, fileSize, rangeFirstLine));
+            }
+        }
+        return ranges;
+    }
+
+    /**
+     * Streams every non-blank row of one range from {@link #split} to the
+     * handler and returns the number of rows delivered. The header is
+     * skipped only in the range that starts the file.
+     */
+    public long forEachRow(Range range, RowHandler handler) throws IOException {
+        if (range.getLength() > MAX_WINDOW) {
+            throw new IOException("Row at line " + range.firstLine + " is longer than " + MAX_WINDOW + " bytes");
+        }
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            int length = (int) range.getLength();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, range.start, length);
+            Cursor cursor = new Cursor(handler, blockSizeFor(length), range.firstLine, skipHeader && range.start == 0);
+            cursor.deliverRows(buffer, length, true);
+            return cursor.rows;
+        }
+    }
+
+    private static int blockSizeFor(long bytes) {
+        return (int) Math.max(1, Math.min(BLOCK_SIZE, bytes));
+    }
+
+    // One pass over the file: the reused row, the line the next row starts on and the rows delivered so far
+    private static final class Cursor {
+        private final RowHandler handler;
+        private final Row row;
+        private long lineNumber;
+        private boolean headerPending;
+        private long rows;
+
+        Cursor(RowHandler handler, int blockSize, long firstLine, boolean skipHeader) {
+            this.handler = handler;
+            this.row = new Row(blockSize);
+            this.lineNumber = firstLine;
+            this.headerPending = skipHeader;
+        }
+
+        /*
+         * Delivers the rows of the first length bytes of the mapping, copying
+         * them into the row's block one block at a time, and returns the
+         * offset just past the last row delivered. A row cut off by the end
+         * of the block is parsed again from the next block; one cut off by
+         * the end of the mapping is left to the caller unless the mapping
+         * ends the file.
+         */
+        int deliverRows(MappedByteBuffer buffer, int length, boolean endsFile) {
+            int blockStart = 0;
+            while (blockStart < length) {
+                int blockLength = Math.min(row.block.length, length - blockStart);
+                boolean endsMapping = blockStart + blockLength == length;
+                buffer.get(blockStart, row.block, 0, blockLength);
+
+                int position = 0;
+                while (position < blockLength) {
+                    row.lineNumber = lineNumber;
+                    int next = parseRow(row.block, position, blockLength, endsMapping && endsFile, row);
+                    if (next < 0) {
+                        break; // Row continues past this block
+                    }
+                    lineNumber += row.lineBreaks;
+                    position = next;
+                    if (headerPending) {
+                        headerPending = false;
+                    } else if (!(row.fieldCount == 1 && row.isEmpty(0))) {
+                        handler.handle(row);
+                        rows++;
+                    }
+                }
+                if (position < blockLength && endsMapping) {
+                    return blockStart + position;
+                }
+                if (position == 0) {
+                    row.block = new byte[(int) Math.min(2L * row.block.length, length - blockStart)];
+                }
+                blockStart += position;
+            }
+            return blockStart;
+        }
+    }
+
+    /*
+     * Parses one row starting at position and returns the offset just past
+     * its line break, or -1 if the row is cut off by the end of a block
+     * that is not the end of the file.
+     */
+    private static int parseRow(byte[] block, int position, int limit, boolean lastBlock, Row row) {
+        row.fieldCount = 0;
+        row.lineBreaks = 0;
+        while (true) {
+            int start;
+            int end;
+            boolean isEscaped = false;
+            while (position < limit && isBlank(block[position])) {
+                position++;
+            }
+            if (position < limit && block[position] == '"') {
+                start = ++position;
+                while (true) {
+                    if (position >= limit) {
+                        if (!lastBlock) return -1;
+                        end = limit; // Unterminated quote: take the rest of the file
+                        break;
+                    }
+                    byte b = block[position];
+                    if (b == '"') {
+                        if (position + 1 < limit && block[position + 1] == '"') {
+                            isEscaped = true;
+                            position += 2;
+                            continue;
+                        }
+                        if (position + 1 >= limit && !lastBlock) return -1;
+                        end = position++;
+                        break;
+                    }
+                    if (b == '\n') {
+                        row.lineBreaks++;
+                    }
+                    position++;
+                }
+                // Ignore anything between the closing quote and the delimiter
+                while (position < limit && !isDelimiter(block[position])) {
+                    position++;
+                }
+            } else {
+                start = position;
+                while (position < limit && !isDelimiter(block[position])) {
+                    position++;
+                }
+                end = position;
+                while (end > start && isBlank(block[end - 1])) {
+                    end--;
+                }
+            }
+            row.addField(start, end, isEscaped);
+
+            if (position >= limit) {
+                return lastBlock ? limit : -1;
+            }
+            byte delimiter = block[position++];
+            if (delimiter == ',') {
+                continue;
+            }
+            row.lineBreaks++;
+            if (delimiter == '\r') {
+                if (position >= limit && !lastBlock) return -1;
+                if (position < limit && block[position] == '\n') {
+                    position++;
+                }
+            }
+            return position;
+        }
+    }
+
+    private static boolean isDelimiter(byte b) {
+        return b == ',' || b == '\n' || b == '\r';
+    }
+
+    private static boolean isBlank(byte b) {
+        return b == ' ' || b == '\t';
+    }
+}
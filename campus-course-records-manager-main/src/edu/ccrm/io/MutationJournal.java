@@ -0,0 +1,600 @@
+package edu.ccrm.io;
+
+import edu.ccrm.config.AppConfig;
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.CourseCode;
+import edu.ccrm.domain.Semester;
+import edu.ccrm.domain.Student;
+import edu.ccrm.service.CourseService;
+import edu.ccrm.service.MutationListener;
+import edu.ccrm.service.StudentService;
+import edu.ccrm.util.CCRMException;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead journal of service mutations.
+ *
+ * Writers only encode their record and append it to an in-memory batch; a
+ * single flusher thread writes each batch with one write and, depending on
+ * the durability level, one fsync. Writers that arrive while an fsync is in
+ * progress are collected into the next batch, so the fsync cost is shared by
+ * every concurrent writer (group commit).
+ *
+ * Records are framed as [int length][int crc32][payload]. Replay stops at the
+ * first torn or corrupt record, which can only be the tail of a segment that
+ * was being written when the process died. The journal is split into
+ * numbered segments; {@link #rotate()} starts a new one at a snapshot
+ * checkpoint so that older segments can be deleted once the snapshot is safe.
+ */
+public class MutationJournal implements MutationListener, Closeable {
+
+    public enum Durability {
+        /**
+         * Batches are written to the OS page cache every flush interval, with
+         * no fsync. A process crash loses the records of the last interval
+         * that were not yet written; an OS crash or power loss also loses
+         * whatever the page cache had not written back.
+         */
+        NONE,
+        /** Batches are fsynced every flush interval; writers never wait. */
+        PERIODIC,
+        /** Writers return only after their batch is fsynced. */
+        SYNC
+    }
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final byte STUDENT_ADDED = 1;
+    private static final byte STUDENT_UPDATED = 2;
+    private static final byte STUDENT_DEACTIVATED = 3;
+    private static final byte STUDENT_ENROLLED = 4;
+    private static final byte STUDENT_UNENROLLED = 5;
+    private static final byte MARKS_RECORDED = 6;
+    private static final byte COURSE_ADDED = 7;
+    private static final byte STUDENT_WAITLISTED = 8;
+    private static final byte STUDENT_LEFT_WAITLIST = 9;
+
+    private final Path directory;
+    private final Durability durability;
+    private final long flushIntervalMillis;
+    private final Object lock = new Object();
+    // Per thread: open batchStarted calls, and the newest record appended inside them
+    private final ThreadLocal<long[]> batch = ThreadLocal.withInitial(() -> new long[2]);
+    private final Thread flusher;
+
+    // Guarded by lock
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream(1 << 16);
+    private long appendedSequence;
+    private long durableSequence;
+    private long segmentNumber;
+    private FileChannel channel;
+    private IOException failure;
+    private boolean closed;
+
+    public MutationJournal() throws IOException {
+        this(AppConfig.getInstance().getDataDirectory(),
+            Durability.valueOf(AppConfig.getInstance().getProperty("journal.durability")),
+            Long.parseLong(AppConfig.getInstance().getProperty("journal.flush.interval.ms")));
+    }
+
+    public MutationJournal(Path directory, Durability durability, long flushIntervalMillis) throws IOException {
+        this.directory = directory;
+        this.durability = durability;
+        this.flushIntervalMillis = flushIntervalMillis;
+        Files.createDirectories(directory);
+        List<Path> segments = listSegments();
+        this.segmentNumber = segments.isEmpty() ? 1 : segmentNumberOf(segments.get(segments.size() - 1)) + 1;
+        this.channel = openSegment(segmentNumber);
+        this.flusher = new Thread(this::flushLoop, "ccrm-journal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    // Listener callbacks, invoked by the services after each mutation's checks and before it is applied
+
+    @Override
+    public void studentAdded(Student student) {
+        append(STUDENT_ADDED, out -> {
+            out.writeUTF(student.getId());
+            out.writeUTF(student.getRegNo());
+            out.writeUTF(student.getFullName());
+            out.writeUTF(student.getEmail());
+            out.writeBoolean(student.isActive());
+        });
+    }
+
+    @Override
+    public void studentUpdated(String studentId, String fullName, String email) {
+        append(STUDENT_UPDATED, out -> {
+            out.writeUTF(studentId);
+            out.writeUTF(fullName);
+            out.writeUTF(email);
+        });
+    }
+
+    @Override
+    public void studentDeactivated(String studentId) {
+        append(STUDENT_DEACTIVATED, out -> out.writeUTF(studentId));
+    }
+
+    @Override
+    public void studentEnrolled(String studentId, String courseId, int credits) {
+        append(STUDENT_ENROLLED, out -> {
+            out.writeUTF(studentId);
+            out.writeUTF(courseId);
+            out.writeInt(credits);
+        });
+    }
+
+    @Override
+    public void studentUnenrolled(String studentId, String courseId) {
+        append(STUDENT_UNENROLLED, out -> {
+            out.writeUTF(studentId);
+            out.writeUTF(courseId);
+        });
+    }
+
+    @Override
+    public void studentWaitlisted(String studentId, String courseId) {
+        append(STUDENT_WAITLISTED, out -> {
+            out.writeUTF(studentId);
+            out.writeUTF(courseId);
+        });
+    }
+
+    @Override
+    public void studentLeftWaitlist(String studentId, String courseId) {
+        append(STUDENT_LEFT_WAITLIST, out -> {
+            out.writeUTF(studentId);
+            out.writeUTF(courseId);
+        });
+    }
+
+    @Override
+    public void marksRecorded(String studentId, String courseId, double marks) {
+        append(MARKS_RECORDED, out -> {
+            out.writeUTF(studentId);
+            out.writeUTF(courseId);
+            out.writeDouble(marks);
+        });
+    }
+
+    @Override
+    public void courseAdded(Course course) {
+        append(COURSE_ADDED, out -> {
+            out.writeUTF(course.getCourseCode().getDepartment());
+            out.writeUTF(course.getCourseCode().getCode());
+            out.writeUTF(course.getTitle());
+            out.writeByte(course.getCredits());
+            out.writeUTF(course.getInstructor());
+            out.writeByte(course.getSemester().ordinal());
+            out.writeUTF(course.getDepartment());
+            out.writeBoolean(course.isActive());
+            out.writeInt(course.getCapacity());
+        });
+    }
+
+    @FunctionalInterface
+    private interface RecordEncoder {
+        void encode(DataOutputStream out) throws IOException;
+    }
+
+    private void append(byte type, RecordEncoder encoder) {
+        byte[] payload;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(type);
+            encoder.encode(out);
+            payload = bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to encode journal record", e);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        long sequence;
+        synchronized (lock) {
+            checkUsable();
+            writeInt(pending, payload.length);
+            writeInt(pending, (int) crc.getValue());
+            pending.write(payload, 0, payload.length);
+            sequence = ++appendedSequence;
+            if (durability == Durability.SYNC) {
+                lock.notifyAll();
+            }
+        }
+        if (durability == Durability.SYNC) {
+            long[] state = batch.get();
+            if (state[0] > 0) {
+                state[1] = sequence;
+            } else {
+                awaitDurable(sequence);
+            }
+        }
+    }
+
+    @Override
+    public void batchStarted() {
+        batch.get()[0]++;
+    }
+
+    // In SYNC mode a batch waits for durability once, covering every record it appended
+    @Override
+    public void batchFinished() {
+        long[] state = batch.get();
+        if (--state[0] > 0) {
+            return;
+        }
+        long sequence = state[1];
+        batch.remove();
+        if (durability == Durability.SYNC && sequence > 0) {
+            awaitDurable(sequence);
+        }
+    }
+
+    // Blocks until every record appended so far has been written (and fsynced unless NONE)
+    public void flush() {
+        long sequence;
+        synchronized (lock) {
+            sequence = appendedSequence;
+            lock.notifyAll();
+        }
+        awaitDurable(sequence);
+    }
+
+    private void awaitDurable(long sequence) {
+        synchronized (lock) {
+            while (durableSequence < sequence) {
+                checkFailure();
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for the journal", e);
+                }
+            }
+        }
+    }
+
+    private void checkUsable() {
+        checkFailure();
+        if (closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+    }
+    
+    private void checkFailure() {
+        if (failure != null) {
+            throw new UncheckedIOException("Journal is unusable after a write failure", failure);
+        }
+    }
+
+    private void flushLoop() {
+        ByteArrayOutputStream spare = new ByteArrayOutputStream(1 << 16);
+        while (true) {
+            ByteArrayOutputStream batch;
+            long batchSequence;
+            FileChannel target;
+            boolean stop;
+            synchronized (lock) {
+                try {
+                    if (durability == Durability.SYNC) {
+                        while (pending.size() == 0 && !closed) {
+                            lock.wait();
+                        }
+                    } else if (!closed) {
+                        lock.wait(flushIntervalMillis);
+                    }
+                } catch (InterruptedException e) {
+                    closed = true;
+                }
+                stop = closed;
+                batch = pending;
+                pending = spare;
+                batchSequence = appendedSequence;
+                target = channel;
+            }
+
+            try {
+                if (batch.size() > 0) {
+                    ByteBuffer buffer = ByteBuffer.wrap(batch.toByteArray());
+                    while (buffer.hasRemaining()) {
+                        target.write(buffer);
+                    }
+                    if (durability != Durability.NONE) {
+                        target.force(false);
+                    }
+                }
+                synchronized (lock) {
+                    durableSequence = Math.max(durableSequence, batchSequence);
+                    lock.notifyAll();
+                }
+            } catch (IOException e) {
+                synchronized (lock) {
+                    failure = e;
+                    lock.notifyAll();
+                }
+                System.err.println("Journal write failed: " + e.getMessage());
+                return;
+            }
+            batch.reset();
+            spare = batch;
+            if (stop) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Starts a new segment after flushing the current one and returns the
+     * number of the new segment. Everything appended before this call lives
+     * in segments numbered lower than the returned value.
+     */
+    public long rotate() throws IOException {
+        synchronized (lock) {
+            checkUsable();
+            FileChannel previous = channel;
+            // Holding the lock with nothing outstanding means the flusher is idle on the old segment
+            while (durableSequence < appendedSequence) {
+                lock.notifyAll();
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while rotating the journal", e);
+                }
+                checkUsable();
+            }
+            segmentNumber++;
+            channel = openSegment(segmentNumber);
+            previous.close();
+            return segmentNumber;
+        }
+    }
+
+    // Deletes segments made obsolete by a snapshot taken after rotate() returned segment
+    public void deleteSegmentsBefore(long segment) throws IOException {
+        for (Path path : listSegments()) {
+            if (segmentNumberOf(path) < segment) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Re-applies every journaled mutation, oldest segment first. Run it after
+     * loading the snapshot and before attaching the journal to the services.
+     * Records that no longer apply (for example ones already contained in the
+     * snapshot) are skipped. Any other failure to apply a record stops the
+     * replay with an IOException. Returns the number of records applied.
+     */
+    public long replay(StudentService studentService, CourseService courseService) throws IOException {
+        long start = System.nanoTime();
+        long applied = 0;
+        long skipped = 0;
+        for (Path segment : listSegments()) {
+            if (segmentNumberOf(segment) >= segmentNumber) {
+                continue;
+            }
+            try (InputStream in = Files.newInputStream(segment)) {
+                long[] counts = replaySegment(in, segment.getFileName().toString(), studentService, courseService);
+                applied += counts[0];
+                skipped += counts[1];
+            }
+        }
+        if (applied + skipped > 0) {
+            System.out.printf("Journal replayed: %d mutations applied, %d skipped in %d ms%n",
+                applied, skipped, (System.nanoTime() - start) / 1_000_000);
+        }
+        return applied;
+    }
+
+    /**
+     * Applies the records of one segment read from any stream, e.g. a
+     * segment stored in a backup. Returns {applied, skipped}. Only records
+     * that conflict with the current state are skipped: students and
+     * courses that already exist, waitlist joins by students who are
+     * already enrolled, and enrollment or grading changes the services
+     * reject.
+     */
+    static long[] replaySegment(InputStream stream, String segmentName, StudentService studentService,
+            CourseService courseService) throws IOException {
+        long applied = 0;
+        long skipped = 0;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 1 << 20));
+        byte[] payload;
+        long record = 0;
+        while ((payload = readRecord(in, segmentName)) != null) {
+            record++;
+            try {
+                if (apply(payload, studentService, courseService)) {
+                    applied++;
+                } else {
+                    skipped++;
+                }
+            } catch (CCRMException e) {
+                skipped++;
+            } catch (Exception e) {
+                throw new IOException("Journal " + segmentName + ": cannot apply record " + record + ": " + e, e);
+            }
+        }
+        return new long[] { applied, skipped };
+    }
+
+    private static byte[] readRecord(DataInputStream in, String segmentName) throws IOException {
+        try {
+            int length = in.readInt();
+            int checksum = in.readInt();
+            if (length <= 0 || length > (1 << 20)) {
+                System.err.println("Journal " + segmentName + ": ignoring corrupt tail");
+                return null;
+            }
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+                System.err.println("Journal " + segmentName + ": ignoring corrupt tail");
+                return null;
+            }
+            return payload;
+        } catch (EOFException e) {
+            return null; // Clean end of segment, or a torn final record
+        }
+    }
+
+    // False for a student or course that already exists or a waitlist join that no longer applies;
+    // CCRMException for a change the services reject
+    private static boolean apply(byte[] payload, StudentService studentService, CourseService courseService)
+            throws Exception {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte type = in.readByte();
+        switch (type) {
+            case STUDENT_ADDED: {
+                Student student = new Student(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF());
+                student.setActive(in.readBoolean());
+                if (studentService.studentExists(student.getId())) {
+                    return false;
+                }
+                studentService.addStudent(student);
+                break;
+            }
+            case STUDENT_UPDATED:
+                studentService.updateStudent(in.readUTF(), in.readUTF(), in.readUTF());
+                break;
+            case STUDENT_DEACTIVATED:
+                studentService.deactivateStudent(in.readUTF());
+                break;
+            case STUDENT_ENROLLED:
+                studentService.replayEnrollment(in.readUTF(), in.readUTF());
+                in.readInt(); // credits, re-derived from the course
+                break;
+            case STUDENT_UNENROLLED:
+                studentService.replayUnenrollment(in.readUTF(), in.readUTF());
+                break;
+            case STUDENT_WAITLISTED: {
+                String studentId = in.readUTF();
+                Course course = requireCourse(courseService, in.readUTF());
+                return studentService.replayWaitlistJoin(studentId, course.getCourseCode().getFullCode());
+            }
+            case STUDENT_LEFT_WAITLIST: {
+                String studentId = in.readUTF();
+                requireCourse(courseService, in.readUTF()).removeFromWaitlist(studentId);
+                break;
+            }
+            case MARKS_RECORDED:
+                studentService.recordMarks(in.readUTF(), in.readUTF(), in.readDouble());
+                break;
+            case COURSE_ADDED: {
+                CourseCode courseCode = new CourseCode(in.readUTF(), in.readUTF());
+                Course.Builder builder = new Course.Builder(courseCode, in.readUTF())
+                    .credits(in.readByte())
+                    .instructor(in.readUTF())
+                    .semester(Semester.values()[in.readByte()])
+                    .department(in.readUTF());
+                boolean active = in.readBoolean();
+                // Records written before courses had a capacity end here
+                if (in.available() > 0) {
+                    builder.capacity(in.readInt());
+                }
+                Course course = builder.build();
+                course.setActive(active);
+                if (courseService.courseExists(courseCode.getFullCode())) {
+                    return false;
+                }
+                courseService.addCourse(course);
+                break;
+            }
+            default:
+                throw new IOException("Unknown journal record type: " + type);
+        }
+        return true;
+    }
+
+    private static Course requireCourse(CourseService courseService, String courseId) throws IOException {
+        Course course = courseService.getCourse(courseId);
+        if (course == null) {
+            throw new IOException("Course not found: " + courseId);
+        }
+        return course;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (lock) {
+            channel.close();
+        }
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        return FileChannel.open(directory.resolve(SEGMENT_PREFIX + number + SEGMENT_SUFFIX),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            List<Path> segments = paths
+                .filter(path -> isSegmentName(path.getFileName().toString()))
+                .collect(Collectors.toCollection(ArrayList::new));
+            segments.sort((a, b) -> Long.compare(segmentNumberOf(a), segmentNumberOf(b)));
+            return segments;
+        }
+    }
+
+    static boolean isSegmentName(String name) {
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+    }
+
+    private static long segmentNumberOf(Path segment) {
+        return segmentNumberOf(segment.getFileName().toString());
+    }
+
+    static long segmentNumberOf(String name) {
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+}
@@ -0,0 +1,147 @@
+package edu.ccrm.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip stream that compresses fixed-size blocks on several threads. Every
+ * block becomes a complete gzip member and members are written in order,
+ * so the result is a standard multi-member gzip file that gzip, tar and
+ * {@link java.util.zip.GZIPInputStream} all read as one stream.
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+
+    private final OutputStream out;
+    private final ExecutorService executor;
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+    private final int maxPending;
+    private final int blockSize;
+
+    private byte[] block;
+    private int blockLength;
+    private long bytesIn;
+    private long bytesOut;
+    private boolean closed;
+
+    public ParallelGzipOutputStream(OutputStream out, int threads) {
+        this(out, threads, DEFAULT_BLOCK_SIZE);
+    }
+
+    public ParallelGzipOutputStream(OutputStream out, int threads, int blockSize) {
+        if (threads < 1 || blockSize < 1) {
+            throw new IllegalArgumentException("threads and blockSize must be positive");
+        }
+        this.out = out;
+        this.blockSize = blockSize;
+        this.block = new byte[blockSize];
+        // Bounded so a slow target cannot make compressed blocks pile up in memory
+        this.maxPending = threads * 2;
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "ccrm-gzip");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        block[blockLength++] = (byte) b;
+        if (blockLength == blockSize) {
+            submitBlock();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            int n = Math.min(len, blockSize - blockLength);
+            System.arraycopy(b, off, block, blockLength, n);
+            blockLength += n;
+            off += n;
+            len -= n;
+            if (blockLength == blockSize) {
+                submitBlock();
+            }
+        }
+    }
+
+    // Uncompressed bytes accepted so far
+    public long getBytesIn() {
+        return bytesIn;
+    }
+
+    // Compressed bytes handed to the underlying stream so far
+    public long getBytesOut() {
+        return bytesOut;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            if (blockLength > 0) {
+                submitBlock();
+            }
+            while (!pending.isEmpty()) {
+                writeCompleted();
+            }
+        } finally {
+            closed = true;
+            executor.shutdownNow();
+            out.close();
+        }
+    }
+
+    private void submitBlock() throws IOException {
+        byte[] data = block.length == blockLength ? block : Arrays.copyOf(block, blockLength);
+        bytesIn += blockLength;
+        pending.addLast(executor.submit(() -> compress(data)));
+        block = new byte[blockSize];
+        blockLength = 0;
+        while (pending.size() >= maxPending || (!pending.isEmpty() && pending.peekFirst().isDone())) {
+            writeCompleted();
+        }
+    }
+
+    private void writeCompleted() throws IOException {
+        byte[] compressed;
+        try {
+            compressed = pending.removeFirst().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while compressing", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Block compression failed", e.getCause());
+        }
+        out.write(compressed);
+        bytesOut += compressed.length;
+    }
+
+    private static byte[] compress(byte[] data) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(data.length / 2 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(buffer, 64 * 1024)) {
+            gzip.write(data);
+        }
+        return buffer.toByteArray();
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+}
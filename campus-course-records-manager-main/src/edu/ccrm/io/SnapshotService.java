@@ -0,0 +1,327 @@
+package edu.ccrm.io;
+
+import edu.ccrm.config.AppConfig;
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.CourseCode;
+import edu.ccrm.domain.Grade;
+import edu.ccrm.domain.Semester;
+import edu.ccrm.domain.Student;
+import edu.ccrm.service.CourseService;
+import edu.ccrm.service.StudentService;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Versioned binary snapshot of the complete in-memory state: courses,
+ * students, enrollments, marks and audit timestamps.
+ *
+ * Layout (all big-endian, strings in modified UTF-8):
+ * <pre>
+ *   int magic "CCRM", short version, long savedAt
+ *   int courseCount,  courseCount  x course record
+ *       ... int capacity, int waitlistCount, waitlistCount x student ID
+ *   int codeCount,    codeCount    x enrolled course ID  (dictionary)
+ *   int studentCount, studentCount x student record
+ *       ... int enrollmentCount, enrollmentCount x
+ *           (int code index, long enrolledAt, double marks or NaN, byte grade or -1, boolean completed)
+ * </pre>
+ * Enrollments refer to course IDs through the dictionary, so each code is
+ * stored once no matter how many students take the course. Timestamps are
+ * epoch milliseconds in UTC. Version 1 snapshots, written before courses
+ * had a capacity, are still read; their courses are unlimited.
+ */
+public class SnapshotService {
+    public static final String SNAPSHOT_FILE = "ccrm.snapshot";
+
+    private static final int MAGIC = 0x4343524D;
+    private static final short VERSION = 2;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final StudentService studentService;
+    private final CourseService courseService;
+    private final AppConfig config;
+
+    public SnapshotService(StudentService studentService, CourseService courseService) {
+        this.studentService = studentService;
+        this.courseService = courseService;
+        this.config = AppConfig.getInstance();
+    }
+
+    public Path getDefaultSnapshotPath() {
+        return config.getDataDirectory().resolve(SNAPSHOT_FILE);
+    }
+
+    public Path saveSnapshot() throws IOException {
+        return saveSnapshot(getDefaultSnapshotPath());
+    }
+
+    /*
+     * Writes to a temporary file, forces it to disk, renames it over the old
+     * snapshot and then forces the directory, so once this returns the new
+     * snapshot survives a crash or power loss and a torn one is never seen.
+     */
+    public Path saveSnapshot(Path filePath) throws IOException {
+        long start = System.nanoTime();
+        Path parent = filePath.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tempFile = Files.createTempFile(parent, SNAPSHOT_FILE, ".tmp");
+
+        List<Course> courses = courseService.getAllCourses();
+        List<Student> students = studentService.getAllStudents();
+
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE));
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeLong(System.currentTimeMillis());
+
+            out.writeInt(courses.size());
+            for (Course course : courses) {
+                writeCourse(out, course);
+            }
+
+            // Enrollments are captured once so the dictionary covers exactly what is written
+            Map<String, Integer> codeIndex = new HashMap<>();
+            List<String> codes = new ArrayList<>();
+            List<Student.Enrollment[]> enrollments = new ArrayList<>(students.size());
+            for (Student student : students) {
+                Student.Enrollment[] captured = student.getEnrollments().values().toArray(new Student.Enrollment[0]);
+                enrollments.add(captured);
+                for (Student.Enrollment enrollment : captured) {
+                    codeIndex.computeIfAbsent(enrollment.getCourseId(), id -> {
+                        codes.add(id);
+                        return codes.size() - 1;
+                    });
+                }
+            }
+            out.writeInt(codes.size());
+            for (String code : codes) {
+                out.writeUTF(code);
+            }
+
+            out.writeInt(students.size());
+            for (int i = 0; i < students.size(); i++) {
+                writeStudent(out, students.get(i), enrollments.get(i), codeIndex);
+            }
+            out.flush();
+            channel.force(true);
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        Files.move(tempFile, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory(parent);
+
+        System.out.printf("Snapshot saved: %s (%d students, %d courses, %d bytes) in %d ms%n",
+            filePath, students.size(), courses.size(), Files.size(filePath), (System.nanoTime() - start) / 1_000_000);
+        return filePath;
+    }
+
+    /**
+     * Saves a snapshot that supersedes the journal written so far: the journal
+     * is rotated first, and only segments older than the rotation are deleted,
+     * after saveSnapshot has forced the snapshot and its directory to disk.
+     */
+    public Path checkpoint(MutationJournal journal) throws IOException {
+        long segment = journal.rotate();
+        Path snapshot = saveSnapshot();
+        journal.deleteSegmentsBefore(segment);
+        return snapshot;
+    }
+
+    // Makes a rename in the directory durable; platforms that cannot open a directory for sync skip it
+    private static void forceDirectory(Path directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException e) {
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+
+    public boolean loadSnapshot() throws IOException {
+        return loadSnapshot(getDefaultSnapshotPath());
+    }
+
+    /**
+     * Loads every course and student in the snapshot into the services,
+     * which must be empty, and returns false if there is no snapshot at the
+     * given path. Records are read in full first and then handed over in
+     * bulk, so the services build their indexes once.
+     */
+    public boolean loadSnapshot(Path filePath) throws IOException {
+        if (!Files.exists(filePath)) {
+            return false;
+        }
+
+        try (InputStream in = Files.newInputStream(filePath)) {
+            loadSnapshot(in, filePath.toString());
+        } catch (EOFException e) {
+            throw new IOException("Snapshot is truncated: " + filePath, e);
+        }
+        return true;
+    }
+
+    // Reads a snapshot from any stream, e.g. one stored inside a backup archive
+    void loadSnapshot(InputStream stream, String source) throws IOException {
+        long start = System.nanoTime();
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream, BUFFER_SIZE));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a CCRM snapshot: " + source);
+        }
+        short version = in.readShort();
+        if (version != VERSION && version != 1) {
+            throw new IOException("Unsupported snapshot version " + version + " in " + source);
+        }
+        in.readLong(); // savedAt
+
+        int courseCount = in.readInt();
+        List<Course> courses = new ArrayList<>(courseCount);
+        for (int i = 0; i < courseCount; i++) {
+            courses.add(readCourse(in, version));
+        }
+        courseService.restoreCourses(courses);
+
+        String[] codes = new String[in.readInt()];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = in.readUTF();
+        }
+
+        int studentCount = in.readInt();
+        List<Student> students = new ArrayList<>(studentCount);
+        for (int i = 0; i < studentCount; i++) {
+            students.add(readStudent(in, codes));
+        }
+        studentService.restoreStudents(students);
+
+        System.out.printf("Snapshot loaded: %s (%d students, %d courses) in %d ms%n",
+            source, studentCount, courseCount, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void writeCourse(DataOutputStream out, Course course) throws IOException {
+        out.writeUTF(course.getCourseCode().getDepartment());
+        out.writeUTF(course.getCourseCode().getCode());
+        out.writeUTF(course.getTitle());
+        out.writeByte(course.getCredits());
+        out.writeUTF(course.getInstructor());
+        out.writeByte(course.getSemester().ordinal());
+        out.writeUTF(course.getDepartment());
+        out.writeBoolean(course.isActive());
+        out.writeLong(toEpochMillis(course.getCreatedDate()));
+        out.writeInt(course.getCapacity());
+        List<String> waitlist = course.getWaitlist();
+        out.writeInt(waitlist.size());
+        for (String studentId : waitlist) {
+            out.writeUTF(studentId);
+        }
+    }
+
+    private Course readCourse(DataInputStream in, short version) throws IOException {
+        CourseCode courseCode = new CourseCode(in.readUTF(), in.readUTF());
+        Course.Builder builder = new Course.Builder(courseCode, in.readUTF())
+            .credits(in.readByte())
+            .instructor(in.readUTF())
+            .semester(Semester.values()[in.readByte()])
+            .department(in.readUTF());
+        boolean active = in.readBoolean();
+        LocalDateTime createdDate = fromEpochMillis(in.readLong());
+        List<String> waitlist = new ArrayList<>();
+        if (version >= 2) {
+            builder.capacity(in.readInt());
+            int waitlistCount = in.readInt();
+            for (int i = 0; i < waitlistCount; i++) {
+                waitlist.add(in.readUTF());
+            }
+        }
+        Course course = builder.build();
+        course.setActive(active);
+        course.restoreCreatedDate(createdDate);
+        waitlist.forEach(course::addToWaitlist);
+        return course;
+    }
+
+    private void writeStudent(DataOutputStream out, Student student, Student.Enrollment[] enrollments,
+            Map<String, Integer> codeIndex) throws IOException {
+        out.writeUTF(student.getId());
+        out.writeUTF(student.getRegNo());
+        out.writeUTF(student.getFullName());
+        out.writeUTF(student.getEmail());
+        out.writeBoolean(student.isActive());
+        out.writeLong(toEpochMillis(student.getCreatedDate()));
+        out.writeLong(toEpochMillis(student.getLastModifiedDate()));
+        out.writeInt(student.getMaxCreditsPerSemester());
+
+        out.writeInt(enrollments.length);
+        for (Student.Enrollment enrollment : enrollments) {
+            out.writeInt(codeIndex.get(enrollment.getCourseId()));
+            out.writeLong(toEpochMillis(enrollment.getEnrollmentDate()));
+            Double marks = enrollment.getMarks();
+            out.writeDouble(marks != null ? marks : Double.NaN);
+            Grade grade = enrollment.getGrade();
+            out.writeByte(grade != null ? grade.ordinal() : -1);
+            out.writeBoolean(enrollment.isCompleted());
+        }
+    }
+
+    private Student readStudent(DataInputStream in, String[] codes) throws IOException {
+        Student student = new Student(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF());
+        student.setActive(in.readBoolean());
+        LocalDateTime createdDate = fromEpochMillis(in.readLong());
+        LocalDateTime lastModifiedDate = fromEpochMillis(in.readLong());
+        student.setMaxCreditsPerSemester(in.readInt());
+
+        int enrollmentCount = in.readInt();
+        for (int i = 0; i < enrollmentCount; i++) {
+            String courseId = codes[in.readInt()];
+            LocalDateTime enrollmentDate = fromEpochMillis(in.readLong());
+            double marks = in.readDouble();
+            byte grade = in.readByte();
+            boolean completed = in.readBoolean();
+            // Courses are loaded first; credits are charged to the course's semester
+            Course course = courseService.getCourse(courseId);
+            if (course != null) {
+                course.restoreSeat();
+            }
+            student.restoreEnrollment(courseId,
+                course != null ? course.getSemester() : null,
+                course != null ? course.getCredits() : 0,
+                enrollmentDate,
+                Double.isNaN(marks) ? null : marks,
+                grade >= 0 ? Grade.values()[grade] : null,
+                completed);
+        }
+        student.restoreAuditDates(createdDate, lastModifiedDate);
+        return student;
+    }
+
+    private static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime fromEpochMillis(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,144 @@
+package edu.ccrm.io;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Sequential reader for the ustar archives written by {@link TarArchiveWriter}.
+ * Entry contents are exposed as a stream bounded to the entry, so callers
+ * can parse them in place without extracting anything to disk.
+ */
+public class TarArchiveReader implements Closeable {
+    private static final int RECORD_SIZE = 512;
+
+    private final InputStream in;
+    private final byte[] header = new byte[RECORD_SIZE];
+    private long remaining;
+    private int padding;
+
+    public TarArchiveReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Advances to the next regular file and returns its name, or null at
+     * the end of the archive. Unread content of the previous entry is skipped.
+     */
+    public String nextFile() throws IOException {
+        while (true) {
+            skipFully(remaining + padding);
+            remaining = 0;
+            padding = 0;
+            if (!readHeader()) {
+                return null;
+            }
+            long size = parseOctal(header, 124, 12);
+            remaining = size;
+            padding = (int) ((RECORD_SIZE - size % RECORD_SIZE) % RECORD_SIZE);
+            byte type = header[156];
+            if (type == '0' || type == 0) {
+                String name = parseString(header, 0, 100);
+                String prefix = parseString(header, 345, 155);
+                return prefix.isEmpty() ? name : prefix + "/" + name;
+            }
+        }
+    }
+
+    public long getEntrySize() {
+        return remaining;
+    }
+
+    // Stream over the current entry's content; closing it does not close the archive
+    public InputStream entryStream() {
+        return new InputStream() {
+            @Override
+            public int read() throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int b = in.read();
+                if (b < 0) {
+                    throw new EOFException("Truncated tar entry");
+                }
+                remaining--;
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int n = in.read(b, off, (int) Math.min(len, remaining));
+                if (n < 0) {
+                    throw new EOFException("Truncated tar entry");
+                }
+                remaining -= n;
+                return n;
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // False at the zero record that ends the archive, or at a clean end of stream
+    private boolean readHeader() throws IOException {
+        int read = 0;
+        while (read < RECORD_SIZE) {
+            int n = in.read(header, read, RECORD_SIZE - read);
+            if (n < 0) {
+                if (read == 0) {
+                    return false;
+                }
+                throw new EOFException("Truncated tar header");
+            }
+            read += n;
+        }
+        for (byte b : header) {
+            if (b != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void skipFully(long count) throws IOException {
+        while (count > 0) {
+            long skipped = in.skip(count);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new EOFException("Truncated tar entry");
+                }
+                skipped = 1;
+            }
+            count -= skipped;
+        }
+    }
+
+    private static long parseOctal(byte[] buffer, int offset, int length) {
+        long value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            byte b = buffer[i];
+            if (b >= '0' && b <= '7') {
+                value = value * 8 + (b - '0');
+            } else if (b == 0 || (b == ' ' && value > 0)) {
+                break;
+            }
+        }
+        return value;
+    }
+
+    private static String parseString(byte[] buffer, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && buffer[end] != 0) {
+            end++;
+        }
+        return new String(buffer, offset, end - offset, StandardCharsets.UTF_8);
+    }
+}
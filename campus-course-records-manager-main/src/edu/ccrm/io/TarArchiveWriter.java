@@ -0,0 +1,136 @@
+package edu.ccrm.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Minimal POSIX ustar writer for regular files. Entries are streamed from
+ * disk, so archiving never holds more than one copy buffer in memory.
+ */
+public class TarArchiveWriter implements Closeable {
+    private static final int RECORD_SIZE = 512;
+    private static final long MAX_ENTRY_SIZE = 077777777777L;
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[64 * 1024];
+    private long entries;
+    private long contentBytes;
+
+    public TarArchiveWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Appends a regular file under the given archive name. Exactly
+     * {@code size} bytes are stored even if the file changes while it is
+     * being read, so a file that is still being appended to cannot corrupt
+     * the archive.
+     */
+    public void addFile(String name, Path file, long size, long lastModifiedMillis) throws IOException {
+        if (size > MAX_ENTRY_SIZE) {
+            throw new IOException("File too large for a tar entry: " + file);
+        }
+        out.write(header(name, size, lastModifiedMillis / 1000));
+
+        long remaining = size;
+        try (InputStream in = Files.newInputStream(file)) {
+            while (remaining > 0) {
+                int n = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (n < 0) {
+                    break;
+                }
+                out.write(buffer, 0, n);
+                remaining -= n;
+            }
+        }
+        if (remaining > 0) {
+            // The file shrank underneath us; keep the header honest
+            Arrays.fill(buffer, (byte) 0);
+            while (remaining > 0) {
+                int n = (int) Math.min(buffer.length, remaining);
+                out.write(buffer, 0, n);
+                remaining -= n;
+            }
+        }
+        int padding = (int) ((RECORD_SIZE - size % RECORD_SIZE) % RECORD_SIZE);
+        out.write(new byte[padding]);
+        entries++;
+        contentBytes += size;
+    }
+
+    public long getEntryCount() {
+        return entries;
+    }
+
+    public long getContentBytes() {
+        return contentBytes;
+    }
+
+    // Writes the two zero records that end a tar archive, then closes the stream
+    @Override
+    public void close() throws IOException {
+        try {
+            out.write(new byte[RECORD_SIZE * 2]);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static byte[] header(String name, long size, long mtimeSeconds) throws IOException {
+        byte[] header = new byte[RECORD_SIZE];
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        if (nameBytes.length <= 100) {
+            System.arraycopy(nameBytes, 0, header, 0, nameBytes.length);
+        } else {
+            // ustar splits long names at a '/' into a 155-byte prefix and a 100-byte name
+            int split = name.lastIndexOf('/', name.length() - 1);
+            byte[] prefix = split > 0 ? name.substring(0, split).getBytes(StandardCharsets.UTF_8) : null;
+            byte[] rest = split > 0 ? name.substring(split + 1).getBytes(StandardCharsets.UTF_8) : null;
+            if (prefix == null || prefix.length > 155 || rest.length > 100) {
+                throw new IOException("Path too long for a ustar entry: " + name);
+            }
+            System.arraycopy(rest, 0, header, 0, rest.length);
+            System.arraycopy(prefix, 0, header, 345, prefix.length);
+        }
+        putOctal(header, 100, 8, 0644);
+        putOctal(header, 108, 8, 0);
+        putOctal(header, 116, 8, 0);
+        putOctal(header, 124, 12, size);
+        putOctal(header, 136, 12, mtimeSeconds);
+        header[156] = '0';
+        putAscii(header, 257, "ustar\0");
+        putAscii(header, 263, "00");
+
+        Arrays.fill(header, 148, 156, (byte) ' ');
+        long checksum = 0;
+        for (byte b : header) {
+            checksum += b & 0xFF;
+        }
+        putOctal(header, 148, 7, checksum);
+        header[155] = ' ';
+        return header;
+    }
+
+    // Zero-padded octal terminated by NUL, as ustar expects
+    private static void putOctal(byte[] header, int offset, int length, long value) {
+        String digits = Long.toOctalString(value);
+        int width = length - 1;
+        for (int i = 0; i < width; i++) {
+            int index = i - (width - digits.length());
+            header[offset + i] = (byte) (index < 0 ? '0' : digits.charAt(index));
+        }
+        header[offset + width] = 0;
+    }
+
+    private static void putAscii(byte[] header, int offset, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            header[offset + i] = (byte) value.charAt(i);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package edu.ccrm.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("edu.ccrm.Backup")
+@Label("Backup")
+@Category({"CCRM", "Backup"})
+@Description("Full, incremental or archive backup of the data directory")
+@StackTrace(false)
+public class BackupEvent extends jdk.jfr.Event {
+    @Label("Path")
+    public String path;
+
+    @Label("Kind")
+    public String kind;
+
+    @Label("Files")
+    public long files;
+
+    // Bytes copied, hashed or compressed, depending on the kind
+    @Label("Bytes Written")
+    @DataAmount
+    public long bytes;
+}
\ No newline at end of file
@@ -0,0 +1,32 @@
+package edu.ccrm.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("edu.ccrm.BackupStage")
+@Label("Backup Stage")
+@Category({"CCRM", "Backup"})
+@Description("Scan, copy or manifest stage of a full backup")
+@StackTrace(false)
+public class BackupStageEvent extends jdk.jfr.Event {
+    public static final String SCAN = "scan";
+    public static final String COPY = "copy";
+    public static final String MANIFEST = "manifest";
+
+    @Label("Path")
+    public String path;
+
+    @Label("Stage")
+    public String stage;
+
+    @Label("Files")
+    public long files;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+}
\ No newline at end of file
@@ -0,0 +1,27 @@
+package edu.ccrm.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("edu.ccrm.EnrollmentBatch")
+@Label("Enrollment Batch")
+@Category({"CCRM", "Enrollment"})
+@StackTrace(false)
+public class EnrollmentBatchEvent extends jdk.jfr.Event {
+    @Label("Requests")
+    public long requests;
+
+    @Label("Students")
+    public long students;
+
+    @Label("Enrolled")
+    public long enrolled;
+
+    @Label("Waitlisted")
+    public long waitlisted;
+
+    @Label("Rejected")
+    public long rejected;
+}
\ No newline at end of file
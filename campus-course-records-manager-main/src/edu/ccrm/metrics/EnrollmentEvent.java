@@ -0,0 +1,28 @@
+package edu.ccrm.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A single enrollment. Only slow ones are recorded by default, since a
+ * bulk load can enroll millions of students.
+ */
+@Name("edu.ccrm.Enrollment")
+@Label("Enrollment")
+@Category({"CCRM", "Enrollment"})
+@Threshold("10 ms")
+@StackTrace(false)
+public class EnrollmentEvent extends jdk.jfr.Event {
+    @Label("Student")
+    public String studentId;
+
+    @Label("Course")
+    public String courseId;
+
+    // ENROLLED, WAITLISTED, or REJECTED when the call threw
+    @Label("Outcome")
+    public String outcome;
+}
\ No newline at end of file
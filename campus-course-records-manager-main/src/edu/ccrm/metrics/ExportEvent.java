@@ -0,0 +1,29 @@
+package edu.ccrm.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("edu.ccrm.Export")
+@Label("Export")
+@Category({"CCRM", "Import/Export"})
+@StackTrace(false)
+public class ExportEvent extends jdk.jfr.Event {
+    @Label("File")
+    public String file;
+
+    @Label("Dataset")
+    public String dataset;
+
+    @Label("Records")
+    public long records;
+
+    @Label("Gzip")
+    public boolean gzip;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+}
\ No newline at end of file
@@ -0,0 +1,21 @@
+package edu.ccrm.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("edu.ccrm.GradingBatch")
+@Label("Grading Batch")
+@Category({"CCRM", "Enrollment"})
+@StackTrace(false)
+public class GradingBatchEvent extends jdk.jfr.Event {
+    @Label("Entries")
+    public long entries;
+
+    @Label("Students")
+    public long students;
+
+    @Label("Recorded")
+    public long recorded;
+}
\ No newline at end of file
@@ -0,0 +1,27 @@
+package edu.ccrm.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+// A single marks entry; like enrollments, only slow ones are recorded by default
+@Name("edu.ccrm.Grading")
+@Label("Grading")
+@Category({"CCRM", "Enrollment"})
+@Threshold("10 ms")
+@StackTrace(false)
+public class GradingEvent extends jdk.jfr.Event {
+    @Label("Student")
+    public String studentId;
+
+    @Label("Course")
+    public String courseId;
+
+    @Label("Marks")
+    public double marks;
+
+    @Label("Recorded")
+    public boolean recorded;
+}
\ No newline at end of file
@@ -0,0 +1,37 @@
+package edu.ccrm.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One whole CSV import, from opening the file to the last insert.
+ */
+@Name("edu.ccrm.Import")
+@Label("Import")
+@Category({"CCRM", "Import/Export"})
+@Description("CSV import of students, courses or a gradebook")
+@StackTrace(false)
+public class ImportEvent extends jdk.jfr.Event {
+    @Label("File")
+    public String file;
+
+    @Label("Dataset")
+    public String dataset;
+
+    @Label("Rows")
+    public long rows;
+
+    @Label("Imported")
+    public long imported;
+
+    @Label("Rejected")
+    public long rejected;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+}
\ No newline at end of file
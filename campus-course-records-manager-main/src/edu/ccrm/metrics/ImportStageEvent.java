@@ -0,0 +1,40 @@
+package edu.ccrm.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One stage of an import: reading lines, parsing a chunk, or inserting a
+ * chunk or batch into the services. Parsing and inserting run on pool
+ * threads, one event per chunk, so stages of one import overlap in time.
+ */
+@Name("edu.ccrm.ImportStage")
+@Label("Import Stage")
+@Category({"CCRM", "Import/Export"})
+@Description("Read, parse or insert stage of a CSV import")
+@StackTrace(false)
+public class ImportStageEvent extends jdk.jfr.Event {
+    public static final String READ = "read";
+    public static final String PARSE = "parse";
+    public static final String INSERT = "insert";
+
+    @Label("File")
+    public String file;
+
+    @Label("Stage")
+    public String stage;
+
+    @Label("Records")
+    public long records;
+
+    @Label("Rejected")
+    public long rejected;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+}
\ No newline at end of file
@@ -0,0 +1,113 @@
+package edu.ccrm.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram in nanoseconds with HDR-style log-linear
+ * buckets: every power of two is split into 32 equal sub-buckets, so any
+ * recorded value is reported within about 3% of its true value, from one
+ * nanosecond up to centuries, in a fixed 15 KB of counters.
+ *
+ * Recording is one atomic increment plus striped adders, and never
+ * blocks. Snapshots read the counters without stopping writers, so a
+ * snapshot taken under load may be off by the few values recorded while
+ * it was being read.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts.getAndIncrement(bucketOf(nanos));
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        totalNanos.reset();
+        maxNanos.reset();
+    }
+
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            total += copy[i];
+        }
+        return new Snapshot(copy, total, totalNanos.sum(), maxNanos.get());
+    }
+
+    // Values below 32 get a bucket each; above that, the top six significant bits pick the bucket
+    static int bucketOf(long nanos) {
+        int magnitude = 63 - Long.numberOfLeadingZeros(nanos | 1);
+        if (magnitude < SUB_BUCKET_BITS) {
+            return (int) nanos;
+        }
+        int shift = magnitude - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((nanos >>> shift) - SUB_BUCKETS);
+    }
+
+    // Largest value that falls in the bucket
+    static long highestValueIn(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * Point-in-time copy of the histogram. Percentiles are the highest value
+     * of the bucket holding that rank, capped at the largest value recorded.
+     */
+    public static class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+
+        private Snapshot(long[] counts, long count, long totalNanos, long maxNanos) {
+            this.counts = counts;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public long getCount() { return count; }
+        public long getMaxNanos() { return maxNanos; }
+
+        public double getMeanNanos() {
+            return count == 0 ? 0 : (double) totalNanos / count;
+        }
+
+        public long valueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestValueIn(i), maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+    }
+}
\ No newline at end of file
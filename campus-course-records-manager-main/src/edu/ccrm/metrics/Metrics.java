@@ -0,0 +1,56 @@
+package edu.ccrm.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Process-wide registry of operation metrics. Services look their
+ * operations up once, into static fields, so every instance of a service
+ * reports into the same histograms. Each operation is also registered with
+ * the platform MBean server as {@code edu.ccrm:type=<service>,name=<operation>},
+ * where JConsole or any JMX client can read it.
+ */
+public final class Metrics {
+    private static final Map<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    public static OperationMetrics operation(String service, String operation) {
+        return operations.computeIfAbsent(service + "." + operation, key -> {
+            OperationMetrics metrics = new OperationMetrics(service, operation);
+            register(metrics);
+            return metrics;
+        });
+    }
+
+    // Every operation, grouped by service in name order
+    public static List<OperationMetrics> getOperations() {
+        List<OperationMetrics> all = new ArrayList<>(operations.values());
+        all.sort(Comparator.comparing(OperationMetrics::getService).thenComparing(OperationMetrics::getOperation));
+        return all;
+    }
+
+    public static void resetAll() {
+        operations.values().forEach(OperationMetrics::reset);
+    }
+
+    private static void register(OperationMetrics metrics) {
+        try {
+            ObjectName name = new ObjectName("edu.ccrm:type=" + metrics.getService()
+                + ",name=" + metrics.getOperation());
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, name);
+        } catch (JMException | SecurityException e) {
+            // Metrics still work in-process; only the JMX view is missing
+            System.err.println("Could not register metrics MBean for " + metrics.getService()
+                + "." + metrics.getOperation() + ": " + e.getMessage());
+        }
+    }
+}
\ No newline at end of file
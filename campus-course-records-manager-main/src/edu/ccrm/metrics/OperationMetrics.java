@@ -0,0 +1,92 @@
+package edu.ccrm.metrics;
+
+/**
+ * Call count and latency of one service operation. Instrumented methods
+ * run their work through {@link #time}, which also times calls that throw.
+ */
+public class OperationMetrics implements OperationMetricsMBean {
+    private final String service;
+    private final String operation;
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    OperationMetrics(String service, String operation) {
+        this.service = service;
+        this.operation = operation;
+    }
+
+    // Work that returns a value and may throw a checked exception
+    @FunctionalInterface
+    public interface Call<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    // Work that returns nothing and may throw a checked exception
+    @FunctionalInterface
+    public interface Action<E extends Exception> {
+        void run() throws E;
+    }
+
+    public <T, E extends Exception> T time(Call<T, E> call) throws E {
+        long start = System.nanoTime();
+        try {
+            return call.call();
+        } finally {
+            recordSince(start);
+        }
+    }
+
+    public <E extends Exception> void time(Action<E> action) throws E {
+        long start = System.nanoTime();
+        try {
+            action.run();
+        } finally {
+            recordSince(start);
+        }
+    }
+
+    public void recordSince(long startNanos) {
+        latency.record(System.nanoTime() - startNanos);
+    }
+
+    public String getService() { return service; }
+    public String getOperation() { return operation; }
+
+    public LatencyHistogram.Snapshot snapshot() {
+        return latency.snapshot();
+    }
+
+    @Override
+    public long getCount() {
+        return latency.snapshot().getCount();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return latency.snapshot().getMeanNanos() / 1_000.0;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return latency.snapshot().valueAtPercentile(50) / 1_000.0;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return latency.snapshot().valueAtPercentile(99) / 1_000.0;
+    }
+
+    @Override
+    public double getP999Micros() {
+        return latency.snapshot().valueAtPercentile(99.9) / 1_000.0;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return latency.snapshot().getMaxNanos() / 1_000.0;
+    }
+
+    @Override
+    public void reset() {
+        latency.reset();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,14 @@
+package edu.ccrm.metrics;
+
+/**
+ * JMX view of one operation's call count and latency, in microseconds.
+ */
+public interface OperationMetricsMBean {
+    long getCount();
+    double getMeanMicros();
+    double getP50Micros();
+    double getP99Micros();
+    double getP999Micros();
+    double getMaxMicros();
+    void reset();
+}
\ No newline at end of file
@@ -0,0 +1,90 @@
+package edu.ccrm.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A queryable property of a record, such as a course's semester. Equality
+ * conditions on an attribute are answered from the service's index of the
+ * same name when it has one; range and custom conditions are checked
+ * against each candidate record.
+ */
+public final class Attribute<T, V extends Comparable<? super V>> {
+    private final String name;
+    private final Function<T, V> getter;
+    private final boolean ignoreCase;
+
+    private Attribute(String name, Function<T, V> getter, boolean ignoreCase) {
+        this.name = Objects.requireNonNull(name);
+        this.getter = Objects.requireNonNull(getter);
+        this.ignoreCase = ignoreCase;
+    }
+
+    public static <T, V extends Comparable<? super V>> Attribute<T, V> of(String name, Function<T, V> getter) {
+        return new Attribute<>(name, getter, false);
+    }
+
+    // String attribute compared without regard to case, like the department and instructor indexes
+    public static <T> Attribute<T, String> ignoringCase(String name, Function<T, String> getter) {
+        return new Attribute<>(name, getter, true);
+    }
+
+    public String getName() { return name; }
+
+    public V valueOf(T record) {
+        return getter.apply(record);
+    }
+
+    public Condition<T> eq(V value) {
+        Object key = key(Objects.requireNonNull(value, name));
+        return Condition.indexed(name + " = " + value, name, List.of(key),
+            record -> Objects.equals(key(getter.apply(record)), key));
+    }
+
+    public Condition<T> in(Collection<? extends V> values) {
+        List<Object> keys = new ArrayList<>();
+        for (V value : values) {
+            keys.add(key(Objects.requireNonNull(value, name)));
+        }
+        return Condition.indexed(name + " in " + values, name, keys,
+            record -> keys.contains(key(getter.apply(record))));
+    }
+
+    public Condition<T> atLeast(V min) {
+        return satisfies(name + " >= " + min, value -> value.compareTo(min) >= 0);
+    }
+
+    public Condition<T> atMost(V max) {
+        return satisfies(name + " <= " + max, value -> value.compareTo(max) <= 0);
+    }
+
+    public Condition<T> between(V min, V max) {
+        return satisfies(name + " between " + min + " and " + max,
+            value -> value.compareTo(min) >= 0 && value.compareTo(max) <= 0);
+    }
+
+    // Records whose value is null never satisfy the condition
+    public Condition<T> satisfies(String description, Predicate<? super V> test) {
+        return Condition.of(description, record -> {
+            V value = getter.apply(record);
+            return value != null && test.test(value);
+        });
+    }
+
+    private Object key(V value) {
+        if (ignoreCase && value != null) {
+            return ((String) value).toLowerCase(Locale.ROOT);
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
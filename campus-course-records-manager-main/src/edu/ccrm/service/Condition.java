@@ -0,0 +1,43 @@
+package edu.ccrm.service;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * One filter of a {@link Query}. An indexed condition names the service
+ * index that can list its matching records directly, and the keys to look
+ * up there; the planner may use those postings instead of testing records.
+ */
+public final class Condition<T> {
+    final String description;
+    // Name of the index answering this condition, or null for a plain filter
+    final String index;
+    // Keys whose postings are unioned
+    final List<Object> keys;
+    final Predicate<T> test;
+
+    private Condition(String description, String index, List<Object> keys, Predicate<T> test) {
+        this.description = description;
+        this.index = index;
+        this.keys = keys;
+        this.test = Objects.requireNonNull(test);
+    }
+
+    public static <T> Condition<T> of(String description, Predicate<T> test) {
+        return new Condition<>(description, null, List.of(), test);
+    }
+
+    static <T> Condition<T> indexed(String description, String index, List<Object> keys, Predicate<T> test) {
+        return new Condition<>(description, index, keys, test);
+    }
+
+    public boolean test(T record) {
+        return test.test(record);
+    }
+
+    @Override
+    public String toString() {
+        return description;
+    }
+}
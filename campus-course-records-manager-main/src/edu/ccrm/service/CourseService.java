@@ -1,29 +1,230 @@
 package edu.ccrm.service;
 
 import edu.ccrm.domain.Course;
+import edu.ccrm.domain.CourseChangeListener;
 import edu.ccrm.domain.CourseCode;
 import edu.ccrm.domain.Semester;
 import edu.ccrm.domain.Searchable;
+import edu.ccrm.metrics.Metrics;
+import edu.ccrm.metrics.OperationMetrics;
 
 import java.util.*; 
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Course catalog, safe to share between threads. Index maintenance for a
+ * course runs under the course's monitor, which its setters also hold.
+ */
 public class CourseService implements Searchable<Course> {
+    private static final OperationMetrics ADD_COURSE = Metrics.operation("CourseService", "addCourse");
+    private static final OperationMetrics ADD_COURSES = Metrics.operation("CourseService", "addCourses");
+    private static final OperationMetrics RESTORE_COURSES = Metrics.operation("CourseService", "restoreCourses");
+    private static final OperationMetrics GET_ACTIVE_COURSES = Metrics.operation("CourseService", "getActiveCourses");
+    private static final OperationMetrics GET_COURSES_BY_INSTRUCTOR = Metrics.operation("CourseService", "getCoursesByInstructor");
+    private static final OperationMetrics GET_COURSES_BY_DEPARTMENT = Metrics.operation("CourseService", "getCoursesByDepartment");
+    private static final OperationMetrics GET_COURSES_BY_SEMESTER = Metrics.operation("CourseService", "getCoursesBySemester");
+    private static final OperationMetrics SEARCH = Metrics.operation("CourseService", "search");
+    
+    public static final Attribute<Course, String> CODE = Attribute.of("code", course -> course.getCourseCode().getFullCode());
+    public static final Attribute<Course, String> TITLE = Attribute.ignoringCase("title", Course::getTitle);
+    public static final Attribute<Course, String> DEPARTMENT = Attribute.ignoringCase("department", Course::getDepartment);
+    public static final Attribute<Course, String> INSTRUCTOR = Attribute.ignoringCase("instructor", Course::getInstructor);
+    public static final Attribute<Course, Semester> SEMESTER = Attribute.of("semester", Course::getSemester);
+    public static final Attribute<Course, Integer> CREDITS = Attribute.of("credits", Course::getCredits);
+    public static final Attribute<Course, Boolean> ACTIVE = Attribute.of("active", Course::isActive);
+    
     private final Map<String, Course> courses;
+    private final SearchIndex<Course> searchIndex;
+    private final Map<Semester, Set<Course>> coursesBySemester;
+    private final Map<String, Set<Course>> coursesByDepartment;
+    private final Map<String, Set<Course>> coursesByInstructor;
+    private final CourseChangeListener indexUpdater;
+    private final QueryEngine<Course> queryEngine;
+    private volatile MutationListener mutationListener = new MutationListener() {};
     
     public CourseService() {
-        this.courses = new HashMap<>();
+        this.courses = new ConcurrentHashMap<>();
+        this.coursesBySemester = new EnumMap<>(Semester.class);
+        this.coursesByDepartment = new ConcurrentHashMap<>();
+        this.coursesByInstructor = new ConcurrentHashMap<>();
+        // Fixed key set, so the EnumMap itself is never modified after construction
+        for (Semester semester : Semester.values()) {
+            coursesBySemester.put(semester, ConcurrentHashMap.newKeySet());
+        }
+        this.searchIndex = new SearchIndex<>(course -> new String[] {
+            course.getTitle(),
+            course.getCourseCode().getFullCode(),
+            course.getInstructor(),
+            course.getDepartment()
+        });
+        this.indexUpdater = this::reindex;
+        this.queryEngine = new QueryEngine<>(courses::values, searchIndex)
+            .index(CODE.getName(), key -> {
+                Course course = courses.get(key);
+                return course == null ? Set.of() : Set.of(course);
+            })
+            .index(SEMESTER.getName(), coursesBySemester::get)
+            .index(DEPARTMENT.getName(), key -> coursesByDepartment.getOrDefault(key, Set.of()))
+            .index(INSTRUCTOR.getName(), key -> coursesByInstructor.getOrDefault(key, Set.of()));
     }
     
     public void addCourse(Course course) {
+        ADD_COURSE.time(() -> insertCourse(course));
+    }
+    
+    private void insertCourse(Course course) {
         assert course != null : "Course cannot be null";
         assert course.getCourseCode() != null : "Course code cannot be null";
         
         String key = course.getCourseCode().getFullCode();
-        if (courses.containsKey(key)) {
-            throw new IllegalArgumentException("Course with code " + key + " already exists");
+        MutationListener listener = mutationListener;
+        listener.batchStarted();
+        try {
+            synchronized (course) {
+                if (courses.putIfAbsent(key, course) != null) {
+                    throw new IllegalArgumentException("Course with code " + key + " already exists");
+                }
+                try {
+                    listener.courseAdded(course);
+                } catch (RuntimeException e) {
+                    courses.remove(key, course);
+                    throw e;
+                }
+                searchIndex.add(course);
+                addToSemester(course.getSemester(), course);
+                addToIndex(coursesByDepartment, fold(course.getDepartment()), course);
+                addToIndex(coursesByInstructor, fold(course.getInstructor()), course);
+                course.addChangeListener(indexUpdater);
+            }
+        } finally {
+            // Outside the course's monitor, so a synchronous journal's fsync does not block it
+            listener.batchFinished();
+        }
+    }
+    
+    /**
+     * Adds a batch of courses and returns, per course in batch order, null
+     * if it was added or the reason it was rejected. Like
+     * StudentService.addStudents, the batch is one listener batch.
+     */
+    public String[] addCourses(List<Course> batch) {
+        return ADD_COURSES.time(() -> insertCourses(batch));
+    }
+    
+    private String[] insertCourses(List<Course> batch) {
+        String[] rejections = new String[batch.size()];
+        MutationListener listener = mutationListener;
+        listener.batchStarted();
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                try {
+                    insertCourse(batch.get(i));
+                } catch (RuntimeException e) {
+                    rejections[i] = e.getMessage();
+                }
+            }
+        } finally {
+            listener.batchFinished();
+        }
+        return rejections;
+    }
+    
+    /**
+     * Loads courses, e.g. from a snapshot, into an empty catalog. Not
+     * journaled, and the search index is built once for all of them. Must
+     * not run concurrently with other mutations.
+     */
+    public void restoreCourses(Collection<Course> loaded) {
+        RESTORE_COURSES.time(() -> bulkInsertCourses(loaded));
+    }
+    
+    private void bulkInsertCourses(Collection<Course> loaded) {
+        if (!courses.isEmpty()) {
+            throw new IllegalStateException("Courses can only be restored into an empty catalog");
+        }
+        for (Course course : loaded) {
+            String key = course.getCourseCode().getFullCode();
+            if (courses.putIfAbsent(key, course) != null) {
+                throw new IllegalArgumentException("Course with code " + key + " already exists");
+            }
+            addToSemester(course.getSemester(), course);
+            addToIndex(coursesByDepartment, fold(course.getDepartment()), course);
+            addToIndex(coursesByInstructor, fold(course.getInstructor()), course);
+            course.addChangeListener(indexUpdater);
+        }
+        searchIndex.addAll(loaded);
+    }
+    
+    public void setMutationListener(MutationListener listener) {
+        this.mutationListener = Objects.requireNonNull(listener);
+    }
+    
+    /**
+     * Removes every course, e.g. before restoring a backup. Not journaled,
+     * and must not run concurrently with other mutations.
+     */
+    public void clear() {
+        for (Course course : courses.values()) {
+            course.removeChangeListener(indexUpdater);
+        }
+        courses.clear();
+        searchIndex.clear();
+        for (Set<Course> semesterCourses : coursesBySemester.values()) {
+            semesterCourses.clear();
+        }
+        coursesByDepartment.clear();
+        coursesByInstructor.clear();
+    }
+    
+    // Invoked from the course's synchronized setters
+    private void reindex(Course course, String property, Object oldValue) {
+        switch (property) {
+            case "semester":
+                if (oldValue != null) {
+                    coursesBySemester.get((Semester) oldValue).remove(course);
+                }
+                addToSemester(course.getSemester(), course);
+                break;
+            case "instructor":
+                removeFromIndex(coursesByInstructor, fold((String) oldValue), course);
+                addToIndex(coursesByInstructor, fold(course.getInstructor()), course);
+                searchIndex.update(course);
+                break;
+            default:
+                searchIndex.update(course);
         }
-        courses.put(key, course);
+    }
+    
+    private void addToSemester(Semester semester, Course course) {
+        if (semester != null) {
+            coursesBySemester.get(semester).add(course);
+        }
+    }
+    
+    private static <K> void addToIndex(Map<K, Set<Course>> index, K key, Course course) {
+        if (key == null) {
+            return;
+        }
+        index.compute(key, (k, bucket) -> {
+            Set<Course> target = bucket != null ? bucket : ConcurrentHashMap.newKeySet();
+            target.add(course);
+            return target;
+        });
+    }
+    
+    private static <K> void removeFromIndex(Map<K, Set<Course>> index, K key, Course course) {
+        if (key == null) {
+            return;
+        }
+        index.computeIfPresent(key, (k, bucket) -> {
+            bucket.remove(course);
+            return bucket.isEmpty() ? null : bucket;
+        });
+    }
+    
+    // Case folding used for the department and instructor keys
+    private static String fold(String value) {
+        return value == null ? null : value.toLowerCase(Locale.ROOT);
     }
     
     public Course getCourse(String courseCode) {
@@ -34,44 +235,50 @@ public class CourseService implements Searchable<Course> {
         return new ArrayList<>(courses.values());
     }
     
+    // Live read-only view for streaming over every course without copying
+    public Collection<Course> getCoursesView() {
+        return Collections.unmodifiableCollection(courses.values());
+    }
+    
     public List<Course> getActiveCourses() {
-        return courses.values().stream()
-            .filter(Course::isActive)
-            .collect(Collectors.toList());
+        return GET_ACTIVE_COURSES.time(() -> query().where(ACTIVE.eq(true)).list());
     }
     
     public List<Course> getCoursesByInstructor(String instructor) {
-        return courses.values().stream()
-            .filter(course -> course.getInstructor().equalsIgnoreCase(instructor))
-            .collect(Collectors.toList());
+        return GET_COURSES_BY_INSTRUCTOR.time(() ->
+            instructor == null ? new ArrayList<>() : query().where(INSTRUCTOR.eq(instructor)).list());
     }
     
     public List<Course> getCoursesByDepartment(String department) {
-        return courses.values().stream()
-            .filter(course -> course.getDepartment().equalsIgnoreCase(department))
-            .collect(Collectors.toList());
+        return GET_COURSES_BY_DEPARTMENT.time(() ->
+            department == null ? new ArrayList<>() : query().where(DEPARTMENT.eq(department)).list());
     }
     
     public List<Course> getCoursesBySemester(Semester semester) {
-        return courses.values().stream()
-            .filter(course -> course.getSemester() == semester)
-            .collect(Collectors.toList());
+        return GET_COURSES_BY_SEMESTER.time(() ->
+            semester == null ? new ArrayList<>() : query().where(SEMESTER.eq(semester)).list());
+    }
+    
+    /**
+     * Starts a query over all courses. Conditions on code, semester,
+     * department and instructor, and text matches of three or more
+     * characters, are answered from the catalog's indexes.
+     */
+    public Query<Course> query() {
+        return queryEngine.query();
     }
     
     @Override
     public List<Course> search(String query) {
+        return SEARCH.time(() -> findMatching(query));
+    }
+    
+    private List<Course> findMatching(String query) {
         if (query == null || query.trim().isEmpty()) {
             return getAllCourses();
         }
         
-        final String searchQuery = query.toLowerCase();
-        return courses.values().stream()
-            .filter(course -> 
-                course.getTitle().toLowerCase().contains(searchQuery) ||
-                course.getCourseCode().getFullCode().toLowerCase().contains(searchQuery) ||
-                course.getInstructor().toLowerCase().contains(searchQuery) ||
-                course.getDepartment().toLowerCase().contains(searchQuery))
-            .collect(Collectors.toList());
+        return searchIndex.search(query);
     }
     
     public boolean courseExists(String courseCode) {
@@ -0,0 +1,15 @@
+package edu.ccrm.service;
+
+/**
+ * Result of one request in a bulk enrollment.
+ */
+public enum EnrollmentOutcome {
+    ENROLLED,
+    // The course was full; the student joined its waitlist
+    WAITLISTED,
+    STUDENT_NOT_FOUND,
+    COURSE_NOT_FOUND,
+    // Already enrolled, or the same course appeared earlier in the batch
+    DUPLICATE,
+    CREDIT_LIMIT_EXCEEDED
+}
@@ -0,0 +1,24 @@
+package edu.ccrm.service;
+
+import java.util.Objects;
+
+/**
+ * One (student, course) pair submitted to {@link StudentService#enrollAll}.
+ */
+public final class EnrollmentRequest {
+    private final String studentId;
+    private final String courseId;
+
+    public EnrollmentRequest(String studentId, String courseId) {
+        this.studentId = Objects.requireNonNull(studentId, "studentId");
+        this.courseId = Objects.requireNonNull(courseId, "courseId");
+    }
+
+    public String getStudentId() { return studentId; }
+    public String getCourseId() { return courseId; }
+
+    @Override
+    public String toString() {
+        return studentId + " -> " + courseId;
+    }
+}
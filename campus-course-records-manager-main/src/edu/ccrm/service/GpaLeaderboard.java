@@ -0,0 +1,277 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.Student;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Ranking of students ordered by GPA (highest first), ties broken by ID.
+ *
+ * Backed by a treap whose nodes carry their subtree size, so inserts,
+ * removals, top-K, rank-of and rank-range queries all run in expected
+ * logarithmic time (plus the size of the returned range). Ranks are 1-based.
+ *
+ * Writers never take the leaderboard's lock: update and remove only record
+ * the student's latest position in a concurrent map, so marks recorded for
+ * different students do not contend here. Readers lock the treap and apply
+ * the pending changes first, so they see every change that completed
+ * before the read started. Callers order changes to one student by holding
+ * that student's lock.
+ */
+class GpaLeaderboard {
+    private static final class Node {
+        final Student student;
+        final double gpa;
+        final int priority;
+        int size = 1;
+        Node left;
+        Node right;
+
+        Node(Student student, double gpa) {
+            this.student = student;
+            this.gpa = gpa;
+            this.priority = ThreadLocalRandom.current().nextInt();
+        }
+    }
+
+    // A student's latest position, or REMOVED, not yet applied to the treap
+    private static final class Pending {
+        static final Pending REMOVED = new Pending(null, 0);
+
+        final Student student;
+        final double gpa;
+
+        Pending(Student student, double gpa) {
+            this.student = student;
+            this.gpa = gpa;
+        }
+    }
+
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    // Guarded by this, like the treap
+    private final Map<String, Double> rankedGpa = new HashMap<>();
+    private Node root;
+
+    // Places the student at the given GPA, replacing any previous position
+    void update(Student student, double gpa) {
+        pending.put(student.getId(), new Pending(student, gpa));
+    }
+
+    void remove(String studentId) {
+        pending.put(studentId, Pending.REMOVED);
+    }
+
+    // Must not run concurrently with update or remove
+    synchronized void clear() {
+        pending.clear();
+        rankedGpa.clear();
+        root = null;
+    }
+
+    /*
+     * Replaces the ranking with the given students at their current GPAs.
+     * The students are sorted once and the treap is built from the sorted
+     * run with a stack holding its right spine, so n students cost one sort
+     * instead of n inserts. Must not run concurrently with update or remove.
+     */
+    synchronized void rebuild(Collection<Student> students) {
+        pending.clear();
+        rankedGpa.clear();
+        List<Node> sorted = new ArrayList<>(students.size());
+        for (Student student : students) {
+            Node node = new Node(student, student.calculateGPA());
+            if (rankedGpa.put(student.getId(), node.gpa) != null) {
+                throw new IllegalArgumentException("Student " + student.getId() + " is ranked twice");
+            }
+            sorted.add(node);
+        }
+        sorted.sort((a, b) -> compare(a.gpa, a.student.getId(), b));
+
+        Deque<Node> rightSpine = new ArrayDeque<>();
+        for (Node node : sorted) {
+            Node below = null;
+            while (!rightSpine.isEmpty() && rightSpine.peek().priority < node.priority) {
+                below = rightSpine.pop();
+            }
+            node.left = below;
+            if (!rightSpine.isEmpty()) {
+                rightSpine.peek().right = node;
+            }
+            rightSpine.push(node);
+        }
+        root = rightSpine.peekLast();
+        resizeAll(root);
+    }
+
+    synchronized int size() {
+        applyPending();
+        return size(root);
+    }
+
+    synchronized List<Student> top(int count) {
+        return range(1, count);
+    }
+
+    // 1-based rank of the student, or -1 if the student is not ranked
+    synchronized int rankOf(String studentId) {
+        applyPending();
+        Double gpa = rankedGpa.get(studentId);
+        if (gpa == null) {
+            return -1;
+        }
+        int rank = 1;
+        Node node = root;
+        while (node != null) {
+            int cmp = compare(gpa, studentId, node);
+            if (cmp < 0) {
+                node = node.left;
+            } else {
+                if (cmp == 0) {
+                    return rank + size(node.left);
+                }
+                rank += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return -1;
+    }
+
+    // Students ranked from..to inclusive, clamped to the ranked population
+    synchronized List<Student> range(int from, int to) {
+        applyPending();
+        int first = Math.max(from, 1) - 1;
+        int last = Math.min(to, size()) - 1;
+        List<Student> result = new ArrayList<>(Math.max(last - first + 1, 0));
+        if (first <= last) {
+            collect(root, 0, first, last, result);
+        }
+        return result;
+    }
+
+    /*
+     * Moves pending changes into the treap. An entry is only dropped if it
+     * is still the one applied; a newer change made meanwhile stays pending
+     * for the next read.
+     */
+    private void applyPending() {
+        for (Map.Entry<String, Pending> entry : pending.entrySet()) {
+            String studentId = entry.getKey();
+            Pending change = entry.getValue();
+            Double gpa = rankedGpa.remove(studentId);
+            if (gpa != null) {
+                root = remove(root, gpa, studentId);
+            }
+            if (change != Pending.REMOVED) {
+                rankedGpa.put(studentId, change.gpa);
+                root = insert(root, new Node(change.student, change.gpa));
+            }
+            pending.remove(studentId, change);
+        }
+    }
+
+    private static void collect(Node node, int offset, int first, int last, List<Student> result) {
+        if (node == null) {
+            return;
+        }
+        int index = offset + size(node.left);
+        if (first < index) {
+            collect(node.left, offset, first, last, result);
+        }
+        if (first <= index && index <= last) {
+            result.add(node.student);
+        }
+        if (last > index) {
+            collect(node.right, index + 1, first, last, result);
+        }
+    }
+
+    private static Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+        if (compare(added.gpa, added.student.getId(), node) < 0) {
+            node.left = insert(node.left, added);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, added);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        resize(node);
+        return node;
+    }
+
+    private static Node remove(Node node, double gpa, String studentId) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = compare(gpa, studentId, node);
+        if (cmp < 0) {
+            node.left = remove(node.left, gpa, studentId);
+        } else if (cmp > 0) {
+            node.right = remove(node.right, gpa, studentId);
+        } else {
+            return merge(node.left, node.right);
+        }
+        resize(node);
+        return node;
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) return right;
+        if (right == null) return left;
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            resize(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        resize(right);
+        return right;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        resize(node);
+        resize(pivot);
+        return pivot;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        resize(node);
+        resize(pivot);
+        return pivot;
+    }
+
+    // Higher GPA sorts first, then ascending student ID
+    private static int compare(double gpa, String studentId, Node node) {
+        int cmp = Double.compare(node.gpa, gpa);
+        return cmp != 0 ? cmp : studentId.compareTo(node.student.getId());
+    }
+
+    private static void resize(Node node) {
+        node.size = 1 + size(node.left) + size(node.right);
+    }
+
+    private static int resizeAll(Node node) {
+        if (node == null) {
+            return 0;
+        }
+        node.size = 1 + resizeAll(node.left) + resizeAll(node.right);
+        return node.size;
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+}
@@ -0,0 +1,27 @@
+package edu.ccrm.service;
+
+import java.util.Objects;
+
+/**
+ * One gradebook row submitted to {@link StudentService#recordMarksAll}.
+ */
+public final class MarksEntry {
+    private final String studentId;
+    private final String courseId;
+    private final double marks;
+
+    public MarksEntry(String studentId, String courseId, double marks) {
+        this.studentId = Objects.requireNonNull(studentId, "studentId");
+        this.courseId = Objects.requireNonNull(courseId, "courseId");
+        this.marks = marks;
+    }
+
+    public String getStudentId() { return studentId; }
+    public String getCourseId() { return courseId; }
+    public double getMarks() { return marks; }
+
+    @Override
+    public String toString() {
+        return studentId + " " + courseId + " = " + marks;
+    }
+}
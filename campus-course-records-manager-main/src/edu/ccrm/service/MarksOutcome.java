@@ -0,0 +1,12 @@
+package edu.ccrm.service;
+
+/**
+ * Result of one entry in a bulk marks recording.
+ */
+public enum MarksOutcome {
+    RECORDED,
+    STUDENT_NOT_FOUND,
+    NOT_ENROLLED,
+    // Outside 0-100
+    INVALID_MARKS
+}
@@ -0,0 +1,32 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.Student;
+
+/**
+ * Receives every state change made through the services, in the order it
+ * is applied to the affected student. Each call is made once the change
+ * has passed its checks and just before it is applied, while the service
+ * holds that student's monitor, so implementations must not call back into
+ * the services. A call that throws stops the change from being applied.
+ */
+public interface MutationListener {
+    default void studentAdded(Student student) {}
+    default void studentUpdated(String studentId, String fullName, String email) {}
+    default void studentDeactivated(String studentId) {}
+    default void studentEnrolled(String studentId, String courseId, int credits) {}
+    default void studentUnenrolled(String studentId, String courseId) {}
+    default void studentWaitlisted(String studentId, String courseId) {}
+    default void studentLeftWaitlist(String studentId, String courseId) {}
+    default void marksRecorded(String studentId, String courseId, double marks) {}
+    default void courseAdded(Course course) {}
+
+    /*
+     * Every operation brackets the mutations it makes on one thread with
+     * these calls, outside any monitor, so a listener can defer
+     * per-mutation work (such as waiting for durability) until
+     * batchFinished without blocking other operations. They may nest.
+     */
+    default void batchStarted() {}
+    default void batchFinished() {}
+}
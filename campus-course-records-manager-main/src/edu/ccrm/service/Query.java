@@ -0,0 +1,113 @@
+package edu.ccrm.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Composable query over a service's records, e.g. active FALL courses in
+ * CS with at least 4 credits, in code order:
+ *
+ *   courseService.query()
+ *       .where(CourseService.SEMESTER.eq(Semester.FALL))
+ *       .where(CourseService.DEPARTMENT.eq("Computer Science"))
+ *       .where(CourseService.CREDITS.atLeast(4))
+ *       .where(CourseService.ACTIVE.eq(true))
+ *       .orderBy(CourseService.CODE)
+ *       .limit(20)
+ *       .list();
+ *
+ * All conditions must hold. The plan is made when a terminal method runs,
+ * from the index sizes at that moment; {@link #explain()} describes it.
+ * Results reflect concurrent updates the way the service's other reads do.
+ */
+public class Query<T> {
+    private final QueryEngine<T> engine;
+    private final List<Condition<T>> conditions = new ArrayList<>();
+    private Comparator<? super T> order;
+    private int limit = -1;
+
+    Query(QueryEngine<T> engine) {
+        this.engine = engine;
+    }
+
+    public Query<T> where(Condition<T> condition) {
+        conditions.add(condition);
+        return this;
+    }
+
+    public Query<T> where(String description, Predicate<T> test) {
+        return where(Condition.of(description, test));
+    }
+
+    // Case-insensitive substring match on the fields the service's search covers
+    public Query<T> matching(String text) {
+        String needle = text.toLowerCase(Locale.ROOT);
+        return where(Condition.indexed("matches '" + text + "'", QueryEngine.TEXT_INDEX, List.of(text),
+            record -> engine.matchesText(record, needle)));
+    }
+
+    public <V extends Comparable<? super V>> Query<T> orderBy(Attribute<T, V> attribute) {
+        return orderBy(Comparator.comparing(attribute::valueOf, Comparator.nullsLast(Comparator.naturalOrder())));
+    }
+
+    public <V extends Comparable<? super V>> Query<T> orderByDescending(Attribute<T, V> attribute) {
+        return orderBy(Comparator.comparing(attribute::valueOf, Comparator.nullsLast(Comparator.<V>reverseOrder())));
+    }
+
+    public Query<T> orderBy(Comparator<? super T> comparator) {
+        this.order = order == null ? comparator : thenComparing(order, comparator);
+        return this;
+    }
+
+    public Query<T> limit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit cannot be negative");
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    public List<T> list() {
+        return select(Function.identity());
+    }
+
+    public <R> List<R> select(Function<? super T, ? extends R> projection) {
+        Stream<T> stream = engine.plan(conditions).stream();
+        if (order != null) {
+            stream = stream.sorted(order);
+        }
+        if (limit >= 0) {
+            stream = stream.limit(limit);
+        }
+        return stream.map(projection).collect(Collectors.toList());
+    }
+
+    public long count() {
+        long count = engine.plan(conditions).stream().count();
+        return limit >= 0 ? Math.min(count, limit) : count;
+    }
+
+    public String explain() {
+        StringBuilder plan = new StringBuilder(engine.plan(conditions).toString());
+        if (order != null) {
+            plan.append(" -> sort");
+        }
+        if (limit >= 0) {
+            plan.append(" -> limit ").append(limit);
+        }
+        return plan.toString();
+    }
+
+    private static <T> Comparator<T> thenComparing(Comparator<? super T> first, Comparator<? super T> second) {
+        return (a, b) -> {
+            int result = first.compare(a, b);
+            return result != 0 ? result : second.compare(a, b);
+        };
+    }
+}
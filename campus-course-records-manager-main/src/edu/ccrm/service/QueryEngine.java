@@ -0,0 +1,146 @@
+package edu.ccrm.service;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Plans and runs {@link Query} instances over one service's records.
+ *
+ * Each service registers its indexes by name; a lookup returns the live
+ * posting set for a key, or null when the index cannot answer that key
+ * (e.g. a text query too short for trigrams). The planner fetches the
+ * postings of every indexed condition, drives the query from the smallest
+ * one, intersects it with the other postings through Set.contains, and
+ * tests the remaining conditions record by record. With no usable index
+ * it scans every record, in parallel once there are enough of them.
+ */
+final class QueryEngine<T> {
+    static final String TEXT_INDEX = "text";
+    static final int PARALLEL_THRESHOLD = 50_000;
+
+    private final Supplier<Collection<T>> records;
+    private final SearchIndex<T> textIndex;
+    private final Map<String, Function<Object, Collection<T>>> indexes = new HashMap<>();
+
+    QueryEngine(Supplier<Collection<T>> records, SearchIndex<T> textIndex) {
+        this.records = records;
+        this.textIndex = textIndex;
+        index(TEXT_INDEX, key -> textIndex.isIndexed((String) key) ? textIndex.search((String) key) : null);
+    }
+
+    // Registered while the service is constructed, before any query runs
+    QueryEngine<T> index(String name, Function<Object, Collection<T>> lookup) {
+        indexes.put(name, lookup);
+        return this;
+    }
+
+    Query<T> query() {
+        return new Query<>(this);
+    }
+
+    boolean matchesText(T record, String needle) {
+        return textIndex.matches(record, needle);
+    }
+
+    static final class Plan<T> {
+        final String driver;
+        final Collection<T> candidates;
+        final List<Predicate<T>> filters;
+        final List<String> steps;
+        final boolean parallel;
+
+        Plan(String driver, Collection<T> candidates, List<Predicate<T>> filters, List<String> steps) {
+            this.driver = driver;
+            this.candidates = candidates;
+            this.filters = filters;
+            this.steps = steps;
+            this.parallel = candidates.size() >= PARALLEL_THRESHOLD && !filters.isEmpty();
+        }
+
+        Stream<T> stream() {
+            Stream<T> stream = parallel ? candidates.parallelStream() : candidates.stream();
+            for (Predicate<T> filter : filters) {
+                stream = stream.filter(filter);
+            }
+            return stream;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder plan = new StringBuilder(driver).append(" [").append(candidates.size()).append(" candidates]");
+            for (String step : steps) {
+                plan.append(" -> ").append(step);
+            }
+            return parallel ? plan.append(" (parallel)").toString() : plan.toString();
+        }
+    }
+
+    Plan<T> plan(List<Condition<T>> conditions) {
+        List<Condition<T>> indexed = new ArrayList<>();
+        List<Collection<T>> postings = new ArrayList<>();
+        List<Condition<T>> residual = new ArrayList<>();
+        for (Condition<T> condition : conditions) {
+            Collection<T> posting = postingsOf(condition);
+            if (posting == null) {
+                residual.add(condition);
+                continue;
+            }
+            if (posting.isEmpty()) {
+                return new Plan<>("index " + condition, posting, List.of(), List.of());
+            }
+            indexed.add(condition);
+            postings.add(posting);
+        }
+
+        Integer[] order = new Integer[indexed.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt(i -> postings.get(i).size()));
+
+        List<Predicate<T>> filters = new ArrayList<>();
+        List<String> steps = new ArrayList<>();
+        for (int i = 1; i < order.length; i++) {
+            Condition<T> condition = indexed.get(order[i]);
+            Collection<T> posting = postings.get(order[i]);
+            if (posting instanceof Set) {
+                filters.add(posting::contains);
+                steps.add("intersect " + condition + " [" + posting.size() + "]");
+            } else {
+                filters.add(condition.test);
+                steps.add("filter " + condition);
+            }
+        }
+        for (Condition<T> condition : residual) {
+            filters.add(condition.test);
+            steps.add("filter " + condition);
+        }
+        if (order.length == 0) {
+            return new Plan<>("scan", records.get(), filters, steps);
+        }
+        return new Plan<>("index " + indexed.get(order[0]), postings.get(order[0]), filters, steps);
+    }
+
+    // Union of the condition's postings, or null if no index can answer it
+    private Collection<T> postingsOf(Condition<T> condition) {
+        Function<Object, Collection<T>> lookup = condition.index == null ? null : indexes.get(condition.index);
+        if (lookup == null) {
+            return null;
+        }
+        if (condition.keys.size() == 1) {
+            return lookup.apply(condition.keys.get(0));
+        }
+        Set<T> union = new HashSet<>();
+        for (Object key : condition.keys) {
+            Collection<T> posting = lookup.apply(key);
+            if (posting == null) {
+                return null;
+            }
+            union.addAll(posting);
+        }
+        return union;
+    }
+}
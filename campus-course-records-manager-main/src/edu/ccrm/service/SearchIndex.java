@@ -0,0 +1,180 @@
+package edu.ccrm.service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Incrementally maintained trigram inverted index answering case-insensitive
+ * substring queries over a fixed set of text fields per record.
+ *
+ * Only the 3-grams of each lower-cased field are posted. A three-character
+ * query is a single posting lookup; longer queries intersect the postings of
+ * their trigrams, starting from the smallest, and verify the few surviving
+ * candidates against the fields. One- and two-character queries match most
+ * records anyway, so they scan the indexed fields instead of keeping
+ * postings that would each hold nearly every record.
+ *
+ * Safe for concurrent use; callers serialize updates of the same record.
+ */
+class SearchIndex<T> {
+    private static final int GRAM = 3;
+
+    private final Function<T, String[]> fieldExtractor;
+    private final Map<String, Set<T>> postings;
+    private final Map<T, String[]> indexedFields;
+
+    SearchIndex(Function<T, String[]> fieldExtractor) {
+        this.fieldExtractor = Objects.requireNonNull(fieldExtractor);
+        this.postings = new ConcurrentHashMap<>();
+        this.indexedFields = new ConcurrentHashMap<>();
+    }
+
+    void add(T record) {
+        String[] fields = normalize(fieldExtractor.apply(record));
+        indexedFields.put(record, fields);
+        for (String gram : gramsOf(fields)) {
+            postings.compute(gram, (k, posting) -> {
+                Set<T> target = posting != null ? posting : ConcurrentHashMap.newKeySet();
+                target.add(record);
+                return target;
+            });
+        }
+    }
+
+    /*
+     * Indexes many records at once, e.g. a loaded snapshot. Records are
+     * grouped by trigram first, so each posting is created at its final
+     * size and published with one map update instead of one per record.
+     */
+    void addAll(Collection<? extends T> records) {
+        Map<String, List<T>> grouped = new HashMap<>();
+        for (T record : records) {
+            String[] fields = normalize(fieldExtractor.apply(record));
+            indexedFields.put(record, fields);
+            for (String gram : gramsOf(fields)) {
+                grouped.computeIfAbsent(gram, k -> new ArrayList<>()).add(record);
+            }
+        }
+        for (Map.Entry<String, List<T>> entry : grouped.entrySet()) {
+            Set<T> posting = ConcurrentHashMap.newKeySet(entry.getValue().size());
+            posting.addAll(entry.getValue());
+            postings.merge(entry.getKey(), posting, (existing, added) -> {
+                existing.addAll(added);
+                return existing;
+            });
+        }
+    }
+
+    void remove(T record) {
+        String[] fields = indexedFields.remove(record);
+        if (fields == null) {
+            return;
+        }
+        for (String gram : gramsOf(fields)) {
+            postings.computeIfPresent(gram, (k, posting) -> {
+                posting.remove(record);
+                return posting.isEmpty() ? null : posting;
+            });
+        }
+    }
+
+    void clear() {
+        indexedFields.clear();
+        postings.clear();
+    }
+
+    // Re-reads the fields of a record whose searchable text has changed
+    void update(T record) {
+        remove(record);
+        add(record);
+    }
+
+    List<T> search(String query) {
+        String needle = query.toLowerCase(Locale.ROOT);
+        if (needle.length() < GRAM) {
+            return scan(needle);
+        }
+        if (needle.length() == GRAM) {
+            Set<T> posting = postings.get(needle);
+            return posting == null ? new ArrayList<>() : new ArrayList<>(posting);
+        }
+
+        List<Set<T>> candidatePostings = new ArrayList<>();
+        for (int i = 0; i + GRAM <= needle.length(); i++) {
+            Set<T> posting = postings.get(needle.substring(i, i + GRAM));
+            if (posting == null) {
+                return new ArrayList<>();
+            }
+            candidatePostings.add(posting);
+        }
+        candidatePostings.sort(Comparator.comparingInt(Set::size));
+
+        List<T> results = new ArrayList<>();
+        for (T candidate : candidatePostings.get(0)) {
+            if (containsAll(candidatePostings, candidate) && matches(candidate, needle)) {
+                results.add(candidate);
+            }
+        }
+        return results;
+    }
+
+    // Whether search answers the query from postings rather than a scan
+    boolean isIndexed(String query) {
+        return query.length() >= GRAM;
+    }
+
+    private List<T> scan(String needle) {
+        List<T> results = new ArrayList<>();
+        for (Map.Entry<T, String[]> entry : indexedFields.entrySet()) {
+            for (String field : entry.getValue()) {
+                if (field.contains(needle)) {
+                    results.add(entry.getKey());
+                    break;
+                }
+            }
+        }
+        return results;
+    }
+
+    private boolean containsAll(List<Set<T>> candidatePostings, T candidate) {
+        for (int i = 1; i < candidatePostings.size(); i++) {
+            if (!candidatePostings.get(i).contains(candidate)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Whether the record's indexed fields contain the already lower-cased needle
+    boolean matches(T candidate, String needle) {
+        String[] fields = indexedFields.get(candidate);
+        if (fields == null) {
+            return false;
+        }
+        for (String field : fields) {
+            if (field.contains(needle)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String[] normalize(String[] fields) {
+        String[] normalized = new String[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            normalized[i] = fields[i] == null ? "" : fields[i].toLowerCase(Locale.ROOT);
+        }
+        return normalized;
+    }
+
+    private static Set<String> gramsOf(String[] fields) {
+        Set<String> grams = new HashSet<>();
+        for (String field : fields) {
+            for (int i = 0; i + GRAM <= field.length(); i++) {
+                grams.add(field.substring(i, i + GRAM));
+            }
+        }
+        return grams;
+    }
+}
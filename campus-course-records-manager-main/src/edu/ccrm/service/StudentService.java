@@ -1,29 +1,282 @@
 package edu.ccrm.service;
 
+import edu.ccrm.domain.Course;
 import edu.ccrm.domain.Student;
 import edu.ccrm.domain.Searchable;
+import edu.ccrm.domain.Semester;
+import edu.ccrm.metrics.EnrollmentBatchEvent;
+import edu.ccrm.metrics.EnrollmentEvent;
+import edu.ccrm.metrics.GradingBatchEvent;
+import edu.ccrm.metrics.GradingEvent;
+import edu.ccrm.metrics.Metrics;
+import edu.ccrm.metrics.OperationMetrics;
 import edu.ccrm.util.CCRMException;
-import edu.ccrm.util.DuplicateEnrollmentException;  // Add this import
-import edu.ccrm.util.MaxCreditLimitExceededException;  // Add this import
+import edu.ccrm.util.DuplicateEnrollmentException;
+import edu.ccrm.util.MaxCreditLimitExceededException;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 
+/**
+ * Student registry, safe to share between threads. Mutations of a student
+ * run under that student's monitor so enrollment checks, grading and the
+ * derived indexes change together; different students proceed in parallel.
+ * Each mutation is passed to the listener once its checks have passed and
+ * before it is applied, so a listener that fails leaves the student as it
+ * was. Every operation brackets its callbacks with batchStarted and
+ * batchFinished outside the monitors, so waiting for durability never
+ * holds up other operations on the same student.
+ */
 public class StudentService implements Searchable<Student> {
+    private static final OperationMetrics ADD_STUDENT = Metrics.operation("StudentService", "addStudent");
+    private static final OperationMetrics ADD_STUDENTS = Metrics.operation("StudentService", "addStudents");
+    private static final OperationMetrics RESTORE_STUDENTS = Metrics.operation("StudentService", "restoreStudents");
+    private static final OperationMetrics RECORD_MARKS_ALL = Metrics.operation("StudentService", "recordMarksAll");
+    private static final OperationMetrics GET_ACTIVE_STUDENTS = Metrics.operation("StudentService", "getActiveStudents");
+    private static final OperationMetrics UPDATE_STUDENT = Metrics.operation("StudentService", "updateStudent");
+    private static final OperationMetrics DEACTIVATE_STUDENT = Metrics.operation("StudentService", "deactivateStudent");
+    private static final OperationMetrics ENROLL_STUDENT = Metrics.operation("StudentService", "enrollStudent");
+    private static final OperationMetrics ENROLL_ALL = Metrics.operation("StudentService", "enrollAll");
+    private static final OperationMetrics UNENROLL_STUDENT = Metrics.operation("StudentService", "unenrollStudent");
+    private static final OperationMetrics RECORD_MARKS = Metrics.operation("StudentService", "recordMarks");
+    private static final OperationMetrics SEARCH = Metrics.operation("StudentService", "search");
+    private static final OperationMetrics GET_TOP_STUDENTS = Metrics.operation("StudentService", "getTopStudents");
+    private static final OperationMetrics GET_STUDENT_RANK = Metrics.operation("StudentService", "getStudentRank");
+    private static final OperationMetrics GET_STUDENTS_BY_RANK = Metrics.operation("StudentService", "getStudentsByRank");
+    private static final OperationMetrics GET_COURSE_ROSTER = Metrics.operation("StudentService", "getCourseRoster");
+    private static final OperationMetrics GET_COURSE_MARKS = Metrics.operation("StudentService", "getCourseMarks");
+    
+    public static final Attribute<Student, String> ID = Attribute.of("id", Student::getId);
+    public static final Attribute<Student, String> REG_NO = Attribute.of("regNo", Student::getRegNo);
+    public static final Attribute<Student, String> NAME = Attribute.ignoringCase("name", Student::getFullName);
+    public static final Attribute<Student, String> EMAIL = Attribute.ignoringCase("email", Student::getEmail);
+    public static final Attribute<Student, Boolean> ACTIVE = Attribute.of("active", Student::isActive);
+    public static final Attribute<Student, Double> GPA = Attribute.of("gpa", Student::calculateGPA);
+    private static final String ENROLLED_IN = "enrolledIn";
+    // Smaller enrollAll batches run on the caller's thread, where handing them to the pool costs more than it saves
+    private static final int PARALLEL_ENROLLMENT_STUDENTS = 512;
+    // Shared by every enrollAll; not the common pool, as a synchronous journal blocks workers while they wait for fsync
+    private static final ForkJoinPool ENROLLMENT_POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    
     private final Map<String, Student> students;
+    // Source of each course's credits and semester for enrollment
+    private final CourseService courseService;
+    private final SearchIndex<Student> searchIndex;
+    private final Map<String, Set<Student>> rosters;
+    private final GpaLeaderboard leaderboard;
+    private final QueryEngine<Student> queryEngine;
+    private volatile MutationListener mutationListener = new MutationListener() {};
     
-    public StudentService() {
-        this.students = new HashMap<>();
+    public StudentService(CourseService courseService) {
+        this.courseService = Objects.requireNonNull(courseService);
+        this.students = new ConcurrentHashMap<>();
+        this.rosters = new ConcurrentHashMap<>();
+        this.leaderboard = new GpaLeaderboard();
+        this.searchIndex = new SearchIndex<>(student -> new String[] {
+            student.getFullName(),
+            student.getRegNo(),
+            student.getEmail()
+        });
+        this.queryEngine = new QueryEngine<>(students::values, searchIndex)
+            .index(ID.getName(), key -> {
+                Student student = students.get(key);
+                return student == null ? Set.of() : Set.of(student);
+            })
+            .index(ENROLLED_IN, key -> rosters.getOrDefault(key, Set.of()));
+    }
+    
+    /**
+     * Starts a query over all students. Conditions on ID and course
+     * enrollment, and text matches of three or more characters over name,
+     * registration number and email, are answered from indexes.
+     */
+    public Query<Student> query() {
+        return queryEngine.query();
+    }
+    
+    // Students enrolled in the course, answered from the course roster
+    public static Condition<Student> enrolledIn(String courseId) {
+        return Condition.indexed("enrolled in " + courseId, ENROLLED_IN, List.of(courseId),
+            student -> student.getEnrollments().containsKey(courseId));
     }
     
     public void addStudent(Student student) {
+        ADD_STUDENT.time(() -> insertStudent(student));
+    }
+    
+    private void insertStudent(Student student) {
         assert student != null : "Student cannot be null";
         assert student.getId() != null : "Student ID cannot be null";
         
-        if (students.containsKey(student.getId())) {
-            throw new IllegalArgumentException("Student with ID " + student.getId() + " already exists");
+        MutationListener listener = mutationListener;
+        listener.batchStarted();
+        try {
+            synchronized (student) {
+                if (students.putIfAbsent(student.getId(), student) != null) {
+                    throw new IllegalArgumentException("Student with ID " + student.getId() + " already exists");
+                }
+                try {
+                    listener.studentAdded(student);
+                } catch (RuntimeException e) {
+                    students.remove(student.getId(), student);
+                    throw e;
+                }
+                searchIndex.add(student);
+                for (String courseId : student.getEnrollments().keySet()) {
+                    addToRoster(courseId, student);
+                }
+                updateRanking(student);
+            }
+        } finally {
+            listener.batchFinished();
+        }
+    }
+    
+    /**
+     * Adds a batch of students and returns, per student in batch order, null
+     * if it was added or the reason it was rejected. The batch is bracketed
+     * as one listener batch, so a synchronous journal waits for a single
+     * fsync instead of one per student.
+     */
+    public String[] addStudents(List<Student> batch) {
+        return ADD_STUDENTS.time(() -> insertStudents(batch));
+    }
+    
+    private String[] insertStudents(List<Student> batch) {
+        String[] rejections = new String[batch.size()];
+        MutationListener listener = mutationListener;
+        listener.batchStarted();
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                try {
+                    insertStudent(batch.get(i));
+                } catch (RuntimeException e) {
+                    rejections[i] = e.getMessage();
+                }
+            }
+        } finally {
+            listener.batchFinished();
+        }
+        return rejections;
+    }
+    
+    /**
+     * Loads students whose enrollments are already charged to the course
+     * catalog, e.g. from a snapshot, into an empty service. Not journaled:
+     * the search index, rosters and leaderboard are built once for the
+     * whole collection instead of being updated student by student. Must
+     * not run concurrently with other mutations.
+     */
+    public void restoreStudents(Collection<Student> loaded) {
+        RESTORE_STUDENTS.time(() -> bulkInsertStudents(loaded));
+    }
+    
+    private void bulkInsertStudents(Collection<Student> loaded) {
+        if (!students.isEmpty()) {
+            throw new IllegalStateException("Students can only be restored into an empty registry");
+        }
+        Map<String, List<Student>> enrolled = new HashMap<>();
+        List<Student> ranked = new ArrayList<>(loaded.size());
+        for (Student student : loaded) {
+            if (students.putIfAbsent(student.getId(), student) != null) {
+                throw new IllegalArgumentException("Student with ID " + student.getId() + " already exists");
+            }
+            for (String courseId : student.getEnrollments().keySet()) {
+                enrolled.computeIfAbsent(courseId, k -> new ArrayList<>()).add(student);
+            }
+            if (student.isActive()) {
+                ranked.add(student);
+            }
+        }
+        searchIndex.addAll(loaded);
+        for (Map.Entry<String, List<Student>> entry : enrolled.entrySet()) {
+            Set<Student> roster = ConcurrentHashMap.newKeySet(entry.getValue().size());
+            roster.addAll(entry.getValue());
+            rosters.put(entry.getKey(), roster);
         }
-        students.put(student.getId(), student);
+        leaderboard.rebuild(ranked);
+    }
+    
+    public void setMutationListener(MutationListener listener) {
+        this.mutationListener = Objects.requireNonNull(listener);
+    }
+    
+    /**
+     * Removes every student, e.g. before restoring a backup. Not journaled,
+     * and must not run concurrently with other mutations.
+     */
+    public void clear() {
+        students.clear();
+        searchIndex.clear();
+        rosters.clear();
+        leaderboard.clear();
+    }
+    
+    /**
+     * Records a batch of marks and returns one outcome per entry, in entry
+     * order, instead of throwing. Entries are grouped by student so each
+     * student's monitor is taken once, and the student's GPA ranking is
+     * updated once per batch rather than once per entry.
+     */
+    public MarksOutcome[] recordMarksAll(List<MarksEntry> entries) {
+        return RECORD_MARKS_ALL.time(() -> applyMarksBatch(entries));
+    }
+    
+    private MarksOutcome[] applyMarksBatch(List<MarksEntry> entries) {
+        GradingBatchEvent event = new GradingBatchEvent();
+        event.begin();
+        MarksOutcome[] outcomes = new MarksOutcome[entries.size()];
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < entries.size(); i++) {
+            groups.computeIfAbsent(entries.get(i).getStudentId(), id -> new ArrayList<>()).add(i);
+        }
+        
+        MutationListener listener = mutationListener;
+        listener.batchStarted();
+        try {
+            for (Map.Entry<String, List<Integer>> group : groups.entrySet()) {
+                Student student = students.get(group.getKey());
+                if (student == null) {
+                    for (int index : group.getValue()) {
+                        outcomes[index] = MarksOutcome.STUDENT_NOT_FOUND;
+                    }
+                    continue;
+                }
+                synchronized (student) {
+                    boolean changed = false;
+                    for (int index : group.getValue()) {
+                        MarksEntry entry = entries.get(index);
+                        double marks = entry.getMarks();
+                        String courseId = canonicalCourseId(entry.getCourseId());
+                        Student.Enrollment enrollment = student.getEnrollments().get(courseId);
+                        if (!(marks >= 0 && marks <= 100)) {
+                            outcomes[index] = MarksOutcome.INVALID_MARKS;
+                        } else if (enrollment == null) {
+                            outcomes[index] = MarksOutcome.NOT_ENROLLED;
+                        } else {
+                            listener.marksRecorded(student.getId(), courseId, marks);
+                            enrollment.setMarks(marks);
+                            outcomes[index] = MarksOutcome.RECORDED;
+                            changed = true;
+                        }
+                    }
+                    if (changed) {
+                        updateRanking(student);
+                    }
+                }
+            }
+        } finally {
+            listener.batchFinished();
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.entries = outcomes.length;
+            event.students = groups.size();
+            event.recorded = Arrays.stream(outcomes).filter(outcome -> outcome == MarksOutcome.RECORDED).count();
+            event.commit();
+        }
+        return outcomes;
     }
     
     public Student getStudent(String id) {
@@ -34,74 +287,539 @@ public class StudentService implements Searchable<Student> {
         return new ArrayList<>(students.values());
     }
     
+    // Live read-only view for streaming over every student without copying
+    public Collection<Student> getStudentsView() {
+        return Collections.unmodifiableCollection(students.values());
+    }
+    
     public List<Student> getActiveStudents() {
-        return students.values().stream()
-            .filter(Student::isActive)
-            .collect(Collectors.toList());
+        return GET_ACTIVE_STUDENTS.time(() -> query().where(ACTIVE.eq(true)).list());
     }
     
     public void updateStudent(String id, String fullName, String email) {
+        UPDATE_STUDENT.time(() -> applyStudentUpdate(id, fullName, email));
+    }
+    
+    private void applyStudentUpdate(String id, String fullName, String email) {
         Student student = students.get(id);
         if (student != null) {
-            student.setFullName(fullName);
-            student.setEmail(email);
+            MutationListener listener = mutationListener;
+            listener.batchStarted();
+            try {
+                synchronized (student) {
+                    listener.studentUpdated(id, fullName, email);
+                    student.setFullName(fullName);
+                    student.setEmail(email);
+                    searchIndex.update(student);
+                }
+            } finally {
+                listener.batchFinished();
+            }
         }
     }
     
     public void deactivateStudent(String id) {
+        DEACTIVATE_STUDENT.time(() -> applyDeactivation(id));
+    }
+    
+    private void applyDeactivation(String id) {
         Student student = students.get(id);
         if (student != null) {
-            student.setActive(false);
+            MutationListener listener = mutationListener;
+            listener.batchStarted();
+            try {
+                synchronized (student) {
+                    listener.studentDeactivated(id);
+                    student.setActive(false);
+                    leaderboard.remove(id);
+                }
+            } finally {
+                listener.batchFinished();
+            }
         }
     }
     
-    public void enrollStudent(String studentId, String courseId, int credits) throws CCRMException {
+    /**
+     * Enrolls the student, or puts them on the course's waitlist when every
+     * seat is taken, and returns ENROLLED or WAITLISTED. Credits and semester
+     * come from the course and count against that semester's limit. The
+     * limit and duplicate checks run before a seat is claimed, so only
+     * students who could take a seat are waitlisted.
+     */
+    public EnrollmentOutcome enrollStudent(String studentId, String courseId) throws CCRMException {
+        return ENROLL_STUDENT.time(() -> enroll(studentId, courseId));
+    }
+    
+    private EnrollmentOutcome enroll(String studentId, String courseId) throws CCRMException {
+        EnrollmentEvent event = new EnrollmentEvent();
+        event.begin();
+        EnrollmentOutcome outcome = null;
+        try {
+            Student student = students.get(studentId);
+            if (student == null) {
+                throw new CCRMException("Student not found: " + studentId);
+            }
+            Course course = courseService.getCourse(courseId);
+            if (course == null) {
+                throw new CCRMException("Course not found: " + courseId);
+            }
+            courseId = course.getCourseCode().getFullCode();
+            
+            MutationListener listener = mutationListener;
+            listener.batchStarted();
+            try {
+                synchronized (student) {
+                    try {
+                        student.checkEnrollment(courseId, course.getSemester(), course.getCredits());
+                    } catch (DuplicateEnrollmentException | MaxCreditLimitExceededException e) {
+                        throw new CCRMException("Enrollment failed: " + e.getMessage(), e);
+                    }
+                    if (course.tryClaimSeat()) {
+                        enrollInSeat(student, course, listener);
+                        outcome = EnrollmentOutcome.ENROLLED;
+                        return outcome;
+                    }
+                    joinWaitlist(student, course, listener);
+                }
+                // A seat may have been freed between the failed claim and joining the waitlist
+                promoteWaitlisted(course, listener);
+            } finally {
+                listener.batchFinished();
+            }
+            outcome = student.getEnrollments().containsKey(courseId)
+                ? EnrollmentOutcome.ENROLLED : EnrollmentOutcome.WAITLISTED;
+            return outcome;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.studentId = studentId;
+                event.courseId = courseId;
+                event.outcome = outcome != null ? outcome.name() : "REJECTED";
+                event.commit();
+            }
+        }
+    }
+    
+    /**
+     * Re-applies a journaled enrollment. The credit and duplicate checks
+     * still apply, but the seat is taken even if the course looks full:
+     * concurrent enrollments can reach the journal in a different order
+     * than they claimed seats, and the journal already records who got one.
+     */
+    public void replayEnrollment(String studentId, String courseId) throws CCRMException {
         Student student = students.get(studentId);
         if (student == null) {
             throw new CCRMException("Student not found: " + studentId);
         }
+        Course course = courseService.getCourse(courseId);
+        if (course == null) {
+            throw new CCRMException("Course not found: " + courseId);
+        }
+        courseId = course.getCourseCode().getFullCode();
         
+        synchronized (student) {
+            try {
+                student.checkEnrollment(courseId, course.getSemester(), course.getCredits());
+            } catch (DuplicateEnrollmentException | MaxCreditLimitExceededException e) {
+                throw new CCRMException("Enrollment failed: " + e.getMessage(), e);
+            }
+            course.restoreSeat();
+            enrollInSeat(student, course, mutationListener);
+        }
+    }
+    
+    /**
+     * Re-applies a journaled waitlist join and returns false if it no longer
+     * applies. A checkpoint's snapshot can already hold the promotion that
+     * followed the join, so a student already enrolled in the course is not
+     * put back on its waitlist.
+     */
+    public boolean replayWaitlistJoin(String studentId, String courseId) throws CCRMException {
+        Student student = students.get(studentId);
+        if (student == null) {
+            throw new CCRMException("Student not found: " + studentId);
+        }
+        Course course = courseService.getCourse(courseId);
+        if (course == null) {
+            throw new CCRMException("Course not found: " + courseId);
+        }
+        
+        synchronized (student) {
+            if (student.getEnrollments().containsKey(course.getCourseCode().getFullCode())) {
+                return false;
+            }
+            return course.addToWaitlist(studentId);
+        }
+    }
+    
+    /**
+     * Enrolls a whole batch and returns one outcome per request, in request
+     * order, instead of throwing. Requests are grouped by student: each
+     * group is validated against the student's per-semester credit ledger
+     * and enrollments under a single acquisition of the student's monitor.
+     * Large batches apply groups for different students in parallel on a
+     * shared pool; smaller ones, and every batch on a single core, run on
+     * the caller's thread as one listener batch.
+     */
+    public EnrollmentOutcome[] enrollAll(List<EnrollmentRequest> requests) {
+        return ENROLL_ALL.time(() -> enrollBatch(requests));
+    }
+    
+    private EnrollmentOutcome[] enrollBatch(List<EnrollmentRequest> requests) {
+        EnrollmentBatchEvent event = new EnrollmentBatchEvent();
+        event.begin();
+        EnrollmentOutcome[] outcomes = new EnrollmentOutcome[requests.size()];
+        Map<String, List<Integer>> groups = new HashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            groups.computeIfAbsent(requests.get(i).getStudentId(), id -> new ArrayList<>()).add(i);
+        }
+        
+        MutationListener listener = mutationListener;
+        if (groups.size() < PARALLEL_ENROLLMENT_STUDENTS || ENROLLMENT_POOL.getParallelism() == 1) {
+            // One listener batch for the whole call, so a synchronous journal waits for a single fsync
+            listener.batchStarted();
+            try {
+                groups.forEach((studentId, indexes) -> enrollGroup(studentId, indexes, requests, outcomes, listener));
+            } finally {
+                listener.batchFinished();
+            }
+        } else {
+            ENROLLMENT_POOL.submit(() -> groups.entrySet().parallelStream()
+                .forEach(group -> enrollGroup(group.getKey(), group.getValue(), requests, outcomes, listener))).join();
+        }
+        commitBatchEvent(event, outcomes, groups.size());
+        return outcomes;
+    }
+    
+    private static void commitBatchEvent(EnrollmentBatchEvent event, EnrollmentOutcome[] outcomes, int students) {
+        event.end();
+        if (!event.shouldCommit()) {
+            return;
+        }
+        event.requests = outcomes.length;
+        event.students = students;
+        for (EnrollmentOutcome outcome : outcomes) {
+            if (outcome == EnrollmentOutcome.ENROLLED) {
+                event.enrolled++;
+            } else if (outcome == EnrollmentOutcome.WAITLISTED) {
+                event.waitlisted++;
+            } else {
+                event.rejected++;
+            }
+        }
+        event.commit();
+    }
+    
+    // Each group writes only its own slots of the outcome array
+    private void enrollGroup(String studentId, List<Integer> indexes, List<EnrollmentRequest> requests,
+            EnrollmentOutcome[] outcomes, MutationListener listener) {
+        Student student = students.get(studentId);
+        if (student == null) {
+            for (int index : indexes) {
+                outcomes[index] = EnrollmentOutcome.STUDENT_NOT_FOUND;
+            }
+            return;
+        }
+        
+        listener.batchStarted();
+        try {
+            List<Course> waitlisted = applyEnrollments(student, indexes, requests, outcomes, listener);
+            // Outside the student's monitor, as promotion takes other students' monitors
+            for (Course course : waitlisted) {
+                promoteWaitlisted(course, listener);
+            }
+        } finally {
+            listener.batchFinished();
+        }
+    }
+    
+    // Returns the courses the student was waitlisted for
+    private List<Course> applyEnrollments(Student student, List<Integer> indexes, List<EnrollmentRequest> requests,
+            EnrollmentOutcome[] outcomes, MutationListener listener) {
+        String studentId = student.getId();
+        List<Course> waitlisted = new ArrayList<>();
+        synchronized (student) {
+            int maxCredits = student.getMaxCreditsPerSemester();
+            Map<String, Student.Enrollment> enrolled = student.getEnrollments();
+            for (int index : indexes) {
+                Course course = courseService.getCourse(requests.get(index).getCourseId());
+                if (course == null) {
+                    outcomes[index] = EnrollmentOutcome.COURSE_NOT_FOUND;
+                    continue;
+                }
+                String courseId = course.getCourseCode().getFullCode();
+                int credits = course.getCredits();
+                Semester semester = course.getSemester();
+                // Same precedence as enrollStudent: the credit limit is checked first
+                if (student.getSemesterCredits(semester) + credits > maxCredits) {
+                    outcomes[index] = EnrollmentOutcome.CREDIT_LIMIT_EXCEEDED;
+                } else if (enrolled.containsKey(courseId)) {
+                    outcomes[index] = EnrollmentOutcome.DUPLICATE;
+                } else if (course.tryClaimSeat()) {
+                    enrollInSeat(student, course, listener);
+                    outcomes[index] = EnrollmentOutcome.ENROLLED;
+                } else {
+                    joinWaitlist(student, course, listener);
+                    waitlisted.add(course);
+                    outcomes[index] = EnrollmentOutcome.WAITLISTED;
+                }
+            }
+        }
+        return waitlisted;
+    }
+    
+    /**
+     * Enrolls a student whose seat is already claimed. The caller holds the
+     * student's monitor and has already run the enrollment checks. The seat
+     * is released again if the listener rejects the enrollment.
+     */
+    private void enrollInSeat(Student student, Course course, MutationListener listener) {
+        String courseId = course.getCourseCode().getFullCode();
+        try {
+            listener.studentEnrolled(student.getId(), courseId, course.getCredits());
+        } catch (RuntimeException e) {
+            course.releaseSeat();
+            throw e;
+        }
         try {
-            student.enrollInCourse(courseId, credits);
+            student.enrollInCourse(courseId, course.getSemester(), course.getCredits());
         } catch (DuplicateEnrollmentException | MaxCreditLimitExceededException e) {
-            throw new CCRMException("Enrollment failed: " + e.getMessage(), e);
+            course.releaseSeat();
+            throw new IllegalStateException(e);
         }
+        course.removeFromWaitlist(student.getId());
+        addToRoster(courseId, student);
     }
     
-    public void recordMarks(String studentId, String courseId, double marks) throws CCRMException {
+    // Under the course's monitor, so the listener sees joins in waitlist order
+    private static void joinWaitlist(Student student, Course course, MutationListener listener) {
+        synchronized (course) {
+            if (!course.isWaitlisted(student.getId())) {
+                listener.studentWaitlisted(student.getId(), course.getCourseCode().getFullCode());
+                course.addToWaitlist(student.getId());
+            }
+        }
+    }
+    
+    /**
+     * Moves students from the head of the course's waitlist into free seats.
+     * Must be called without holding any student's monitor, since it takes
+     * the monitor of each student it promotes. Students who can no longer
+     * take the course are dropped from the waitlist instead.
+     */
+    private void promoteWaitlisted(Course course, MutationListener listener) {
+        String courseId = course.getCourseCode().getFullCode();
+        // Re-checks the waitlist after every release, so a student who joins it concurrently is not stranded
+        while (course.hasWaitlist() && course.tryClaimSeat()) {
+            String studentId = course.pollWaitlist();
+            Student student = studentId != null ? students.get(studentId) : null;
+            if (student == null) {
+                course.releaseSeat();
+                continue;
+            }
+            synchronized (student) {
+                try {
+                    try {
+                        student.checkEnrollment(courseId, course.getSemester(), course.getCredits());
+                    } catch (DuplicateEnrollmentException | MaxCreditLimitExceededException e) {
+                        course.releaseSeat();
+                        listener.studentLeftWaitlist(studentId, courseId);
+                        continue;
+                    }
+                    enrollInSeat(student, course, listener);
+                } catch (RuntimeException e) {
+                    // Not recorded, so the student keeps their place
+                    course.returnToWaitlist(studentId);
+                    throw e;
+                }
+            }
+        }
+    }
+    
+    // Frees the student's seat and promotes the head of the course's waitlist into it
+    public void unenrollStudent(String studentId, String courseId) throws CCRMException {
+        UNENROLL_STUDENT.time(() -> unenrollAndPromote(studentId, courseId));
+    }
+    
+    private void unenrollAndPromote(String studentId, String courseId) throws CCRMException {
+        MutationListener listener = mutationListener;
+        listener.batchStarted();
+        try {
+            Course course = unenroll(studentId, courseId, listener);
+            if (course != null) {
+                promoteWaitlisted(course, listener);
+            }
+        } finally {
+            listener.batchFinished();
+        }
+    }
+    
+    // Re-applies a journaled unenrollment; the promotions it caused are journaled on their own
+    public void replayUnenrollment(String studentId, String courseId) throws CCRMException {
+        unenroll(studentId, courseId, mutationListener);
+    }
+    
+    // Returns the course whose seat was freed, or null if the course no longer exists
+    private Course unenroll(String studentId, String courseId, MutationListener listener) throws CCRMException {
         Student student = students.get(studentId);
         if (student == null) {
             throw new CCRMException("Student not found: " + studentId);
         }
+        Course course = courseService.getCourse(courseId);
+        if (course != null) {
+            courseId = course.getCourseCode().getFullCode();
+        }
         
+        synchronized (student) {
+            if (!student.getEnrollments().containsKey(courseId)) {
+                throw new CCRMException("Unenrollment failed: Student not enrolled in course: " + courseId);
+            }
+            listener.studentUnenrolled(studentId, courseId);
+            student.unenrollFromCourse(courseId);
+            removeFromRoster(courseId, student);
+            updateRanking(student);
+        }
+        if (course != null) {
+            course.releaseSeat();
+        }
+        return course;
+    }
+    
+    public void recordMarks(String studentId, String courseId, double marks) throws CCRMException {
+        RECORD_MARKS.time(() -> gradeStudent(studentId, courseId, marks));
+    }
+    
+    private void gradeStudent(String studentId, String courseId, double marks) throws CCRMException {
+        GradingEvent event = new GradingEvent();
+        event.begin();
+        boolean recorded = false;
         try {
-            student.recordMarks(courseId, marks);
-        } catch (Exception e) {
-            throw new CCRMException("Failed to record marks: " + e.getMessage(), e);
+            Student student = students.get(studentId);
+            if (student == null) {
+                throw new CCRMException("Student not found: " + studentId);
+            }
+            courseId = canonicalCourseId(courseId);
+            
+            MutationListener listener = mutationListener;
+            listener.batchStarted();
+            try {
+                synchronized (student) {
+                    Student.Enrollment enrollment = student.getEnrollments().get(courseId);
+                    if (enrollment == null) {
+                        throw new CCRMException("Failed to record marks: Student not enrolled in course: " + courseId);
+                    }
+                    if (!(marks >= 0 && marks <= 100)) {
+                        throw new CCRMException("Failed to record marks: Marks must be between 0 and 100");
+                    }
+                    listener.marksRecorded(studentId, courseId, marks);
+                    enrollment.setMarks(marks);
+                    updateRanking(student);
+                    recorded = true;
+                }
+            } finally {
+                listener.batchFinished();
+            }
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.studentId = studentId;
+                event.courseId = courseId;
+                event.marks = marks;
+                event.recorded = recorded;
+                event.commit();
+            }
         }
     }
     
     @Override
     public List<Student> search(String query) {
+        return SEARCH.time(() -> findMatching(query));
+    }
+    
+    private List<Student> findMatching(String query) {
         if (query == null || query.trim().isEmpty()) {
             return getAllStudents();
         }
         
-        final String searchQuery = query.toLowerCase();
-        return students.values().stream()
-            .filter(student -> 
-                student.getFullName().toLowerCase().contains(searchQuery) ||
-                student.getRegNo().toLowerCase().contains(searchQuery) ||
-                student.getEmail().toLowerCase().contains(searchQuery))
-            .collect(Collectors.toList());
+        return searchIndex.search(query);
     }
     
     public List<Student> getTopStudents(int count) {
-        return students.values().stream()
-            .filter(Student::isActive)
-            .sorted((s1, s2) -> Double.compare(s2.calculateGPA(), s1.calculateGPA()))
-            .limit(count)
-            .collect(Collectors.toList());
+        return GET_TOP_STUDENTS.time(() -> leaderboard.top(count));
+    }
+    
+    // 1-based GPA rank among active students, or -1 if the student is not ranked
+    public int getStudentRank(String studentId) {
+        return GET_STUDENT_RANK.time(() -> leaderboard.rankOf(studentId));
+    }
+    
+    // Active students holding GPA ranks fromRank..toRank inclusive
+    public List<Student> getStudentsByRank(int fromRank, int toRank) {
+        return GET_STUDENTS_BY_RANK.time(() -> leaderboard.range(fromRank, toRank));
+    }
+    
+    // Caller holds the student's monitor
+    private void updateRanking(Student student) {
+        if (student.isActive()) {
+            leaderboard.update(student, student.calculateGPA());
+        } else {
+            leaderboard.remove(student.getId());
+        }
+    }
+    
+    public List<Student> getCourseRoster(String courseId) {
+        return GET_COURSE_ROSTER.time(() -> copyRoster(courseId));
+    }
+    
+    private List<Student> copyRoster(String courseId) {
+        Set<Student> roster = rosters.get(canonicalCourseId(courseId));
+        return roster == null ? new ArrayList<>() : new ArrayList<>(roster);
+    }
+    
+    public int getCourseHeadcount(String courseId) {
+        Set<Student> roster = rosters.get(canonicalCourseId(courseId));
+        return roster == null ? 0 : roster.size();
+    }
+    
+    // Marks per enrolled student ID, null where no marks are recorded yet
+    public Map<String, Double> getCourseMarks(String courseId) {
+        return GET_COURSE_MARKS.time(() -> collectCourseMarks(courseId));
+    }
+    
+    private Map<String, Double> collectCourseMarks(String courseId) {
+        Map<String, Double> marks = new LinkedHashMap<>();
+        courseId = canonicalCourseId(courseId);
+        Set<Student> roster = rosters.get(courseId);
+        if (roster != null) {
+            for (Student student : roster) {
+                Student.Enrollment enrollment = student.getEnrollments().get(courseId);
+                if (enrollment != null) {
+                    marks.put(student.getId(), enrollment.getMarks());
+                }
+            }
+        }
+        return marks;
+    }
+    
+    // Enrollments, rosters and the journal key courses by their code as stored, whatever case was typed
+    private String canonicalCourseId(String courseId) {
+        Course course = courseService.getCourse(courseId);
+        return course != null ? course.getCourseCode().getFullCode() : courseId;
+    }
+    
+    private void addToRoster(String courseId, Student student) {
+        rosters.compute(courseId, (k, roster) -> {
+            Set<Student> target = roster != null ? roster : ConcurrentHashMap.newKeySet();
+            target.add(student);
+            return target;
+        });
+    }
+    
+    private void removeFromRoster(String courseId, Student student) {
+        rosters.computeIfPresent(courseId, (k, roster) -> {
+            roster.remove(student);
+            return roster.isEmpty() ? null : roster;
+        });
     }
     
     public boolean studentExists(String studentId) {
@@ -0,0 +1,25 @@
+@echo off
+echo Building and running Campus Course & Records Manager tests...
+echo.
+
+echo Cleaning test\bin directory...
+if exist test\bin rmdir /s /q test\bin
+mkdir test\bin
+
+echo Compiling sources and tests...
+javac -encoding UTF-8 -d test\bin src/edu/ccrm/util/*.java src/edu/ccrm/domain/*.java src/edu/ccrm/config/*.java src/edu/ccrm/metrics/*.java src/edu/ccrm/service/*.java src/edu/ccrm/io/*.java src/edu/ccrm/cli/*.java src/edu/ccrm/Main.java test/src/edu/ccrm/service/*.java
+
+if %errorlevel% neq 0 (
+    echo Compilation failed!
+    exit /b 1
+)
+
+rem Each test is a main class that exits non-zero on the first broken invariant
+for %%t in (ServiceStressTest SeatAllocationTest) do (
+    java -ea -cp test\bin edu.ccrm.service.%%t
+    if errorlevel 1 (
+        echo %%t failed!
+        exit /b 1
+    )
+)
+echo All tests passed.
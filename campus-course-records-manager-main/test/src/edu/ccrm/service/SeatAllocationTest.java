@@ -0,0 +1,241 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.CourseCode;
+import edu.ccrm.domain.Student;
+import edu.ccrm.io.MutationJournal;
+import edu.ccrm.io.SnapshotService;
+import edu.ccrm.util.CCRMException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Races many threads for the seats of one limited course and checks that
+ * it is never oversold. Covers a single rush where every student enrolls
+ * at once, dropping enrolled students while the waitlist is promoted in
+ * FIFO order, a long mixed churn of enrollments and drops, and replaying
+ * a waitlist join whose promotion a checkpoint's snapshot already holds.
+ *
+ * Run with {@code java -cp <classes> edu.ccrm.service.SeatAllocationTest};
+ * exits with status 1 on the first broken invariant.
+ */
+public class SeatAllocationTest {
+    private static final int CAPACITY = 50;
+    private static final int STUDENTS = 400;
+    private static final int DROPS = 20;
+
+    private final CourseService courseService = new CourseService();
+    private final StudentService studentService = new StudentService(courseService);
+    private final Course course;
+    private final String courseId;
+    // Joins as the service reports them; made under the course's monitor, so in waitlist order
+    private final List<String> waitlistJoins = Collections.synchronizedList(new ArrayList<>());
+
+    public static void main(String[] args) throws Exception {
+        for (int round = 0; round < 20; round++) {
+            SeatAllocationTest test = new SeatAllocationTest();
+            test.rushAndPromote();
+        }
+        System.out.println("rush and drop-then-promote: 20 rounds of " + STUDENTS + " threads for " + CAPACITY + " seats");
+        new SeatAllocationTest().churn(16, 20_000);
+        System.out.println("churn: 16 threads, 20000 enroll/drop operations each");
+        checkpointReplay();
+        System.out.println("checkpoint replay: promoted student is not put back on the waitlist");
+        System.out.println("SeatAllocationTest passed");
+    }
+
+    private SeatAllocationTest() {
+        course = new Course.Builder(new CourseCode("SEAT", "101"), "Contended Seats").credits(3).capacity(CAPACITY).build();
+        courseService.addCourse(course);
+        courseId = course.getCourseCode().getFullCode();
+        for (int i = 0; i < STUDENTS; i++) {
+            studentService.addStudent(new Student(id(i), "REG" + i, "Seat Student " + i, "seat" + i + "@campus.edu"));
+        }
+        studentService.setMutationListener(new MutationListener() {
+            @Override
+            public void studentWaitlisted(String studentId, String courseId) {
+                waitlistJoins.add(studentId);
+            }
+        });
+    }
+
+    private static String id(int index) {
+        return String.format("S%04d", index);
+    }
+
+    private void rushAndPromote() throws InterruptedException {
+        // Every student races for a seat at once
+        EnrollmentOutcome[] outcomes = new EnrollmentOutcome[STUDENTS];
+        runConcurrently(STUDENTS, i -> outcomes[i] = studentService.enrollStudent(id(i), courseId));
+
+        Set<String> enrolled = new HashSet<>();
+        Set<String> waitlisted = new HashSet<>();
+        for (int i = 0; i < STUDENTS; i++) {
+            (outcomes[i] == EnrollmentOutcome.ENROLLED ? enrolled : waitlisted).add(id(i));
+            check(outcomes[i] == EnrollmentOutcome.ENROLLED || outcomes[i] == EnrollmentOutcome.WAITLISTED,
+                "unexpected outcome %s for %s", outcomes[i], id(i));
+        }
+        check(enrolled.size() == CAPACITY, "%d students were told ENROLLED for %d seats", enrolled.size(), CAPACITY);
+        checkSeats(enrolled);
+        List<String> waitlist = course.getWaitlist();
+        check(new HashSet<>(waitlist).equals(waitlisted), "waitlist does not hold exactly the WAITLISTED students");
+        check(waitlist.equals(waitlistJoins), "waitlist is not in the order students joined it");
+
+        // Enrolled students drop concurrently; the head of the waitlist takes their seats in order
+        List<String> dropping = new ArrayList<>(enrolled).subList(0, DROPS);
+        runConcurrently(DROPS, i -> studentService.unenrollStudent(dropping.get(i), courseId));
+
+        List<String> promoted = waitlist.subList(0, DROPS);
+        enrolled.removeAll(dropping);
+        enrolled.addAll(promoted);
+        checkSeats(enrolled);
+        check(course.getWaitlist().equals(waitlist.subList(DROPS, waitlist.size())),
+            "after %d drops the waitlist is not the old one minus its first %d students", DROPS, DROPS);
+        for (String studentId : dropping) {
+            check(!studentService.getStudent(studentId).getEnrollments().containsKey(courseId),
+                "%s dropped but is still enrolled", studentId);
+        }
+    }
+
+    // Random enrollments and drops from every thread; the course must never be oversold or strand a waitlisted student
+    private void churn(int threads, int operations) throws InterruptedException {
+        runConcurrently(threads, t -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < operations; i++) {
+                String studentId = id(random.nextInt(STUDENTS));
+                try {
+                    if (random.nextBoolean()) {
+                        studentService.enrollStudent(studentId, courseId);
+                    } else {
+                        studentService.unenrollStudent(studentId, courseId);
+                    }
+                } catch (CCRMException e) {
+                    // Already enrolled or not enrolled
+                }
+                check(course.getSeatsTaken() <= CAPACITY, "%d seats taken of %d", course.getSeatsTaken(), CAPACITY);
+            }
+        });
+
+        Set<String> enrolled = new HashSet<>();
+        for (int i = 0; i < STUDENTS; i++) {
+            if (studentService.getStudent(id(i)).getEnrollments().containsKey(courseId)) {
+                enrolled.add(id(i));
+            }
+        }
+        checkSeats(enrolled);
+        check(course.getSeatsTaken() == CAPACITY || !course.hasWaitlist(),
+            "%d of %d seats taken while %d students wait", course.getSeatsTaken(), CAPACITY, course.getWaitlist().size());
+    }
+
+    /*
+     * A student joins the waitlist and is promoted after the checkpoint has
+     * rotated the journal but before the snapshot is taken. The snapshot
+     * holds the promotion, the drop that freed the seat no longer applies on
+     * replay, and the replayed join must not put the enrolled student back
+     * on the waitlist.
+     */
+    private static void checkpointReplay() throws IOException, CCRMException {
+        Path directory = Files.createTempDirectory("ccrm-seat-replay");
+        Path snapshot = directory.resolve("snapshot.dat");
+        try {
+            CourseService courses = new CourseService();
+            StudentService students = new StudentService(courses);
+            courses.addCourse(new Course.Builder(new CourseCode("SEAT", "201"), "One Seat").credits(3).capacity(1).build());
+            students.addStudent(new Student("S0", "REG0", "First Student", "first@campus.edu"));
+            students.addStudent(new Student("S1", "REG1", "Second Student", "second@campus.edu"));
+            try (MutationJournal journal = new MutationJournal(directory, MutationJournal.Durability.SYNC, 0)) {
+                courses.setMutationListener(journal);
+                students.setMutationListener(journal);
+                check(students.enrollStudent("S0", "SEAT-201") == EnrollmentOutcome.ENROLLED, "S0 did not take the seat");
+                long segment = journal.rotate();
+                check(students.enrollStudent("S1", "SEAT-201") == EnrollmentOutcome.WAITLISTED, "S1 was not waitlisted");
+                students.unenrollStudent("S0", "SEAT-201");
+                new SnapshotService(students, courses).saveSnapshot(snapshot);
+                journal.deleteSegmentsBefore(segment);
+            }
+
+            CourseService restoredCourses = new CourseService();
+            StudentService restoredStudents = new StudentService(restoredCourses);
+            new SnapshotService(restoredStudents, restoredCourses).loadSnapshot(snapshot);
+            try (MutationJournal journal = new MutationJournal(directory, MutationJournal.Durability.SYNC, 0)) {
+                journal.replay(restoredStudents, restoredCourses);
+            }
+            Course course = restoredCourses.getCourse("SEAT-201");
+            check(restoredStudents.getStudent("S1").getEnrollments().containsKey("SEAT-201"), "S1 lost its seat on replay");
+            check(!restoredStudents.getStudent("S0").getEnrollments().containsKey("SEAT-201"), "S0 regained its seat on replay");
+            check(course.getSeatsTaken() == 1, "%d seats taken of 1 after replay", course.getSeatsTaken());
+            check(course.getWaitlist().isEmpty(), "waitlist holds %s after replay", course.getWaitlist());
+        } finally {
+            try (var paths = Files.list(directory)) {
+                for (Path path : (Iterable<Path>) paths::iterator) {
+                    Files.delete(path);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    // Seat count, roster and students' enrollments all agree, and no enrolled student is still waitlisted
+    private void checkSeats(Set<String> enrolled) {
+        check(course.getSeatsTaken() == enrolled.size(), "%d seats taken for %d enrolled students", course.getSeatsTaken(),
+            enrolled.size());
+        check(enrolled.size() <= CAPACITY, "%d students enrolled in %d seats", enrolled.size(), CAPACITY);
+        Set<String> roster = new HashSet<>();
+        for (Student student : studentService.getCourseRoster(courseId)) {
+            roster.add(student.getId());
+        }
+        check(roster.equals(enrolled), "roster holds %d students, expected %d", roster.size(), enrolled.size());
+        for (int i = 0; i < STUDENTS; i++) {
+            boolean isEnrolled = studentService.getStudent(id(i)).getEnrollments().containsKey(courseId);
+            check(isEnrolled == enrolled.contains(id(i)), "%s enrollment is %b, expected %b", id(i), isEnrolled,
+                enrolled.contains(id(i)));
+        }
+        for (String studentId : course.getWaitlist()) {
+            check(!enrolled.contains(studentId), "%s is both enrolled and waitlisted", studentId);
+        }
+    }
+
+    private interface Task {
+        void run(int index) throws CCRMException;
+    }
+
+    // Starts one thread per index, releases them together and rethrows the first failure
+    private static void runConcurrently(int threads, Task task) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < threads; i++) {
+            int index = i;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                    task.run(index);
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        if (!failures.isEmpty()) {
+            AssertionError error = new AssertionError(failures.size() + " of " + threads + " threads failed");
+            failures.forEach(error::addSuppressed);
+            throw error;
+        }
+    }
+
+    private static void check(boolean condition, String format, Object... args) {
+        if (!condition) {
+            throw new AssertionError(String.format(format, args));
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.CourseCode;
+import edu.ccrm.domain.Semester;
+import edu.ccrm.domain.Student;
+import edu.ccrm.util.CCRMException;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hammers one StudentService and CourseService from a growing number of
+ * threads with a mix of enrollments, drops, marks, renames, deactivations,
+ * searches and leaderboard reads on shared students. Prints the throughput
+ * at each thread count and then checks that counters, rosters, credit
+ * ledgers, cached GPAs, the leaderboard and the search index all agree
+ * with the students' actual enrollments.
+ *
+ * Run with {@code java -cp <classes> edu.ccrm.service.ServiceStressTest [opsPerRun]};
+ * exits with status 1 on the first broken invariant.
+ */
+public class ServiceStressTest {
+    private static final int STUDENTS = 2_000;
+    private static final int COURSES = 40;
+
+    private final CourseService courseService = new CourseService();
+    private final StudentService studentService = new StudentService(courseService);
+    private final List<String> courseIds = new ArrayList<>();
+    private final AtomicLong enrolled = new AtomicLong();
+    private final AtomicLong unenrolled = new AtomicLong();
+    private final AtomicLong marksRecorded = new AtomicLong();
+    private final AtomicLong deactivated = new AtomicLong();
+    private final Set<String> deactivatedIds = Collections.synchronizedSet(new HashSet<>());
+
+    public static void main(String[] args) throws Exception {
+        int opsPerRun = args.length > 0 ? Integer.parseInt(args[0]) : 400_000;
+        int cores = Runtime.getRuntime().availableProcessors();
+        int maxThreads = Math.max(4, 2 * cores);
+        System.out.printf("ServiceStressTest: %d ops per run, %d cores%n", opsPerRun, cores);
+        // Warm-up, so the single-threaded run is not the one paying for JIT compilation
+        new ServiceStressTest().run(maxThreads, opsPerRun / 2);
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            ServiceStressTest test = new ServiceStressTest();
+            double opsPerMilli = test.run(threads, opsPerRun);
+            test.verify();
+            System.out.printf("  %2d threads: %8.0f ops/ms  (%d enrolled, %d dropped, %d marks, %d deactivated)%n",
+                threads, opsPerMilli, test.enrolled.get(), test.unenrolled.get(), test.marksRecorded.get(),
+                test.deactivated.get());
+        }
+        System.out.println("ServiceStressTest passed");
+    }
+
+    private ServiceStressTest() {
+        Semester[] semesters = Semester.values();
+        for (int i = 0; i < COURSES; i++) {
+            Course course = new Course.Builder(new CourseCode("STR", String.valueOf(100 + i)), "Stress Course " + i)
+                .credits(1 + i % 4)
+                .semester(semesters[i % semesters.length])
+                .department("Stress")
+                .instructor("Instructor " + i % 7)
+                .build();
+            courseService.addCourse(course);
+            courseIds.add(course.getCourseCode().getFullCode());
+        }
+        for (int i = 0; i < STUDENTS; i++) {
+            studentService.addStudent(new Student(id(i), "REG" + i, "Student Number" + i, "student" + i + "@campus.edu"));
+        }
+    }
+
+    private static String id(int index) {
+        return String.format("S%05d", index);
+    }
+
+    // Returns operations per millisecond over the whole run
+    private double run(int threads, int totalOps) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        for (int t = 0; t < threads; t++) {
+            SplittableRandom random = new SplittableRandom(31L * t + threads);
+            int ops = totalOps / threads;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < ops; i++) {
+                        step(random);
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            }, "stress-" + t);
+            workers.add(worker);
+            worker.start();
+        }
+        long began = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - began;
+        if (!failures.isEmpty()) {
+            AssertionError error = new AssertionError("Worker failed with " + threads + " threads");
+            failures.forEach(error::addSuppressed);
+            throw error;
+        }
+        return (totalOps / threads) * (double) threads / (elapsed / 1e6);
+    }
+
+    private void step(SplittableRandom random) {
+        String studentId = id(random.nextInt(STUDENTS));
+        String courseId = courseIds.get(random.nextInt(COURSES));
+        int op = random.nextInt(100);
+        try {
+            if (op < 30) {
+                if (studentService.enrollStudent(studentId, courseId) == EnrollmentOutcome.ENROLLED) {
+                    enrolled.incrementAndGet();
+                }
+            } else if (op < 40) {
+                studentService.unenrollStudent(studentId, courseId);
+                unenrolled.incrementAndGet();
+            } else if (op < 75) {
+                studentService.recordMarks(studentId, courseId, random.nextInt(101));
+                marksRecorded.incrementAndGet();
+            } else if (op < 82) {
+                int index = Integer.parseInt(studentId.substring(1));
+                studentService.updateStudent(studentId, "Student Number" + index + " v" + random.nextInt(10),
+                    "student" + index + "@campus.edu");
+            } else if (op < 83) {
+                if (random.nextInt(10) == 0 && deactivatedIds.add(studentId)) {
+                    studentService.deactivateStudent(studentId);
+                    deactivated.incrementAndGet();
+                }
+            } else if (op < 90) {
+                studentService.search("mber" + random.nextInt(100));
+            } else if (op < 95) {
+                studentService.getTopStudents(10);
+            } else {
+                studentService.getStudentRank(studentId);
+            }
+        } catch (CCRMException e) {
+            // Duplicate, credit limit or not enrolled: expected under a random mix
+        }
+    }
+
+    private void verify() {
+        List<Student> students = studentService.getAllStudents();
+        check(students.size() == STUDENTS, "expected %d students, found %d", STUDENTS, students.size());
+
+        // Every successful enroll and drop is reflected exactly once
+        long enrollments = 0;
+        Map<String, Set<String>> expectedRosters = new HashMap<>();
+        for (Student student : students) {
+            enrollments += student.getEnrollments().size();
+            for (String courseId : student.getEnrollments().keySet()) {
+                expectedRosters.computeIfAbsent(courseId, k -> new HashSet<>()).add(student.getId());
+            }
+            for (Semester semester : Semester.values()) {
+                int cached = student.getSemesterCredits(semester);
+                check(cached == student.recalculateSemesterCredits(semester),
+                    "credit ledger of %s in %s is %d, recount says %d", student.getId(), semester, cached,
+                    student.recalculateSemesterCredits(semester));
+                check(cached <= student.getMaxCreditsPerSemester(), "%s is over the credit limit in %s",
+                    student.getId(), semester);
+            }
+            check(Math.abs(student.calculateGPA() - student.recalculateGPA()) < 1e-9,
+                "cached GPA of %s is %f, recomputed %f", student.getId(), student.calculateGPA(), student.recalculateGPA());
+        }
+        check(enrollments == enrolled.get() - unenrolled.get(),
+            "students hold %d enrollments but %d enrolls minus %d drops succeeded", enrollments, enrolled.get(),
+            unenrolled.get());
+
+        // The reverse index matches the students' own enrollments
+        long seats = 0;
+        for (String courseId : courseIds) {
+            Set<String> roster = new HashSet<>();
+            for (Student student : studentService.getCourseRoster(courseId)) {
+                roster.add(student.getId());
+            }
+            check(roster.equals(expectedRosters.getOrDefault(courseId, Set.of())), "roster of %s is out of step", courseId);
+            check(courseService.getCourse(courseId).getSeatsTaken() == roster.size(),
+                "%s counts %d seats for %d enrolled students", courseId, courseService.getCourse(courseId).getSeatsTaken(),
+                roster.size());
+            seats += roster.size();
+        }
+        check(seats == enrollments, "rosters hold %d students, enrollments %d", seats, enrollments);
+
+        // The leaderboard ranks every active student by current GPA
+        long active = students.stream().filter(Student::isActive).count();
+        check(active == STUDENTS - deactivated.get(), "%d active students, expected %d", active,
+            STUDENTS - deactivated.get());
+        List<Student> ranked = studentService.getStudentsByRank(1, STUDENTS);
+        check(ranked.size() == active, "leaderboard ranks %d students, %d are active", ranked.size(), active);
+        for (int i = 0; i < ranked.size(); i++) {
+            Student student = ranked.get(i);
+            check(student.isActive(), "inactive %s is ranked", student.getId());
+            check(studentService.getStudentRank(student.getId()) == i + 1, "%s listed at %d but ranked %d",
+                student.getId(), i + 1, studentService.getStudentRank(student.getId()));
+            if (i > 0) {
+                check(ranked.get(i - 1).calculateGPA() >= student.calculateGPA(), "leaderboard out of GPA order at rank %d",
+                    i + 1);
+            }
+        }
+        for (String studentId : deactivatedIds) {
+            check(studentService.getStudentRank(studentId) == -1, "deactivated %s is still ranked", studentId);
+        }
+
+        // The search index finds every student under their latest name and nothing it no longer matches
+        for (Student student : students) {
+            check(studentService.search(student.getFullName()).contains(student), "search misses %s as '%s'",
+                student.getId(), student.getFullName());
+        }
+        for (int version = 0; version < 10; version++) {
+            String name = " v" + version;
+            for (Student student : studentService.search(name)) {
+                check(student.getFullName().contains(name), "search for '%s' returned %s named '%s'", name,
+                    student.getId(), student.getFullName());
+            }
+        }
+    }
+
+    private static void check(boolean condition, String format, Object... args) {
+        if (!condition) {
+            throw new AssertionError(String.format(format, args));
+        }
+    }
+}